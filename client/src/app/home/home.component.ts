@@ -59,6 +59,10 @@ export class HomeComponent {
                     case LoginResult.SERVER_ERROR:
                         this.errorMessage = 'The server is currently unavailable.';
                         break;
+
+                    case LoginResult.SERVER_BUSY:
+                        this.errorMessage = 'The server is busy right now. Please try again in a moment.';
+                        break;
                 }
 
                 break;
@@ -21,7 +21,6 @@ export class AssetsService {
 
     private loader: PIXI.loaders.Loader;
     private _tileSize: number;
-    private tileset: PIXI.Texture;
     private spriteSheet: PIXI.Texture;
     private pendingLoad = 1;
     private loaded = false;
@@ -63,7 +62,7 @@ export class AssetsService {
             this.serverInfo.getServerInfo().subscribe(info => {
                 this._tileSize = info.tileSize;
 
-                this.loader.add(info.tileset.name, `${this.app.contextPath()}${info.tileset.resource}`);
+                info.tilesets.forEach(t => this.loader.add(t.name, `${this.app.contextPath()}${t.resource}`));
                 this.loader.add(info.sprites.name, `${this.app.contextPath()}${info.sprites.resource}`);
 
                 this.loader.load((loader, resource) => this.loadDescriptors(loader, resource, info, done));
@@ -140,7 +139,8 @@ export class AssetsService {
      */
     private loadDescriptors(loader: any, resource: any, info: ServerInfo, done: () => void): void {
         // process the metadata from the server about tilesets
-        this.loadTileset(info.tileset);
+        this.tileTextures = new Map<number, PIXI.Texture>();
+        info.tilesets.forEach(t => this.loadTileset(t));
 
         // load the metadata for the sprite sheet
         this.http.get(`${this.app.contextPath()}${info.sprites.path}`)
@@ -159,15 +159,13 @@ export class AssetsService {
      */
     private loadTileset(tileset: TilesetInfo): void {
         // load the base texture for the tileset
-        this.tileset = this.loader.resources[tileset.name].texture;
-
-        // create a look-up of tile IDs to their locations on the base texture
-        this.tileTextures = new Map<number, PIXI.Texture>();
+        let texture = this.loader.resources[tileset.name].texture;
 
+        // add the tile IDs in this tileset to the look-up of their locations on the base texture
         tileset.tiles.forEach(t => {
             // compute the frame of the tile based on its metadata rectangle
             let rect = new PIXI.Rectangle(t.frame.x, t.frame.y, t.frame.w, t.frame.h);
-            this.tileTextures[t.id] = new PIXI.Texture(this.tileset.baseTexture, rect);
+            this.tileTextures[t.id] = new PIXI.Texture(texture.baseTexture, rect);
         });
     }
 
@@ -6,6 +6,17 @@ export class Layer extends PIXI.Container {
     public constructor(tiles: Array<PIXI.Container>) {
         super();
 
-        tiles.forEach(t => this.addChild(t));
+        this.addTiles(tiles);
+    }
+
+    /**
+     * Adds more tiles to this layer.
+     *
+     * Tiles are placed beneath any other children of the layer, such as entities.
+     *
+     * @param tiles The tiles to add.
+     */
+    public addTiles(tiles: Array<PIXI.Container>): void {
+        tiles.forEach(t => this.addChildAt(t, 0));
     }
 }
\ No newline at end of file
@@ -55,6 +55,16 @@ export class World extends PIXI.Container {
         });
     }
 
+    /**
+     * Returns the layer at the given index.
+     *
+     * @param index The index of the layer, starting from the bottom-most layer.
+     * @returns {Layer} The layer.
+     */
+    public getLayer(index: number): Layer {
+        return this.layers[index];
+    }
+
     /**
      * Places an entity on the world.
      *
@@ -93,6 +103,15 @@ export class World extends PIXI.Container {
         }
     }
 
+    /**
+     * Returns the ID numbers of all entities in the world.
+     *
+     * @returns {Array<number>} The entity ID numbers.
+     */
+    public getEntityIds(): Array<number> {
+        return Object.keys(this.entities).map(id => Number(id));
+    }
+
     /**
      * Returns the {@link Entity} with the associated ID number.
      *
@@ -5,6 +5,8 @@ import {
     GameEvent,
     GameEventType,
     MapInfoEvent,
+    MapChunkEvent,
+    AreaStateEvent,
     GameStateEvent,
     MoveStartEvent,
     MoveStopEvent,
@@ -153,6 +155,14 @@ export class InterfaceComponent implements AfterViewInit {
                     this.processMapInfo(<MapInfoEvent> e);
                     break;
 
+                case GameEventType.MAP_CHUNK:
+                    this.processMapChunk(<MapChunkEvent> e);
+                    break;
+
+                case GameEventType.AREA_STATE:
+                    this.processAreaState(<AreaStateEvent> e);
+                    break;
+
                 case GameEventType.GAME_STATE:
                     this.processGameState(<GameStateEvent> e);
                     break;
@@ -209,10 +219,28 @@ export class InterfaceComponent implements AfterViewInit {
         this.world.reset(e.width, e.height);
         this.stage.addChild(this.world);
 
-        console.log(`map: ${e.width} x ${e.height} tiles and ${e.layers.length} layers`);
+        console.log(`map: ${e.width} x ${e.height} tiles and ${e.layerCount} layers`);
+
+        // create empty layers for the world, which will be filled in as chunks of tiles arrive
+        let layers = [];
+        for (let i = 0; i < e.layerCount; i++) {
+            layers.push(new Layer([]));
+        }
+
+        this.world.addLayers(layers);
+
+        // place sprites on top of the tiles
+        e.players.forEach(p => this.addEntity(p));
+    }
 
-        // transform the raw map data into tiles and form layers for the world
-        let layers = e.layers.map(layer => {
+    /**
+     * Processes a game event containing a chunk of map tiles.
+     *
+     * @param e The event.
+     */
+    private processMapChunk(e: MapChunkEvent): void {
+        // transform the raw chunk data into tiles and add them to their layers
+        e.layers.forEach((layer, i) => {
             let layerTiles = [];
 
             for (let x = 0; x < e.width; x++) {
@@ -222,19 +250,41 @@ export class InterfaceComponent implements AfterViewInit {
 
                     if (tile) {
                         // position the tile accordingly, then add it to the stage
-                        tile.position.set(x * tile.width, y * tile.height);
+                        tile.position.set((e.x + x) * tile.width, (e.y + y) * tile.height);
                         layerTiles.push(tile);
                     }
                 }
             }
 
-            return new Layer(layerTiles);
+            this.world.getLayer(i).addTiles(layerTiles);
         });
+    }
 
-        this.world.addLayers(layers);
+    /**
+     * Processes a game event containing all players in the current map area.
+     *
+     * @param e The event.
+     */
+    private processAreaState(e: AreaStateEvent): void {
+        // remove any entities that have left while we were disconnected
+        let ids = new Set<number>(e.players.map(p => p.id));
+        this.world.getEntityIds()
+            .filter(id => !ids.has(id))
+            .forEach(id => this.world.removeEntityById(id));
+
+        // add entities that have appeared, and bring everyone else up to date
+        e.players.forEach(p => {
+            let entity = this.world.getEntityById(p.id);
+            if (entity) {
+                entity.moving = false;
+                entity.position.set(p.x, p.y);
+                entity.stopAnimating();
+            }
 
-        // place sprites on top of the tiles
-        e.players.forEach(p => this.addEntity(p));
+            else {
+                this.addEntity(p);
+            }
+        });
     }
 
     /**
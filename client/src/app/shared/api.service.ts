@@ -5,6 +5,8 @@ import {ISubscription} from "rxjs/Subscription";
 import {
     GameEvent,
     MapInfoEvent,
+    MapChunkEvent,
+    AreaStateEvent,
     GameStateEvent,
     LoginEvent,
     LogoutEvent,
@@ -15,7 +17,10 @@ import {
 } from "./game-event";
 import {Message, MessageHeader} from "./messages/message";
 import {LoginRequest} from "./messages/outgoing/login-request";
+import {ResumeRequest} from "./messages/outgoing/resume-request";
 import {MapInfoResponse} from "./messages/incoming/map-info-response";
+import {MapChunkResponse} from "./messages/incoming/map-chunk-response";
+import {AreaStateResponse} from "./messages/incoming/area-state-response";
 import {GameStateResponse} from "./messages/incoming/game-state-response";
 import {LoginResponse} from "./messages/incoming/login-response";
 import {MoveStartRequest} from "./messages/outgoing/move-start-request";
@@ -30,6 +35,9 @@ export class ApiService {
 
     private events: Subject<GameEvent>;
     private socket: Subject<Message>;
+    private resumeToken: string;
+    private resuming: boolean;
+    private loggingOut: boolean;
 
     public constructor(private socketService: SocketService) {
         this.events = new Subject<GameEvent>();
@@ -53,6 +61,9 @@ export class ApiService {
      * @param password The player's password.
      */
     public login(username: string, password: string): void {
+        this.resumeToken = null;
+        this.loggingOut = false;
+
         this.socket = this.socketService.connect(() => {
 
             // send login information upon connecting
@@ -67,6 +78,8 @@ export class ApiService {
      * Logs out and disconnects from the server.
      */
     public logout(): void {
+        this.loggingOut = true;
+        this.resumeToken = null;
         this.socketService.disconnect();
     }
 
@@ -96,12 +109,35 @@ export class ApiService {
             console.log('connected to server');
         }
 
+        // if the connection dropped unexpectedly, try once to resume our session before giving up
+        else if (state == SocketState.DISCONNECTED && this.resumeToken && !this.resuming && !this.loggingOut) {
+            console.log('lost connection to server, resuming session');
+            this.resume();
+        }
+
         else if (state == SocketState.DISCONNECTED) {
             console.log('disconnected from server');
+            this.resuming = false;
             this.events.next(new LogoutEvent());
         }
     }
 
+    /**
+     * Reconnects to the server and resumes the current session.
+     */
+    private resume(): void {
+        this.resuming = true;
+
+        this.socket = this.socketService.connect(() => {
+
+            // send our resume token upon connecting
+            console.log('sending resume token');
+            this.socket.next(new ResumeRequest(this.resumeToken));
+        });
+
+        this.socket.subscribe(this.processMessage.bind(this));
+    }
+
     /**
      * Processes an incoming message from the server.
      *
@@ -121,6 +157,14 @@ export class ApiService {
                 this.processMapInfo(<MapInfoResponse> message);
                 break;
 
+            case MessageHeader.MAP_CHUNK:
+                this.processMapChunk(<MapChunkResponse> message);
+                break;
+
+            case MessageHeader.AREA_STATE:
+                this.processAreaState(<AreaStateResponse> message);
+                break;
+
             case MessageHeader.GAME_STATE:
                 this.processGameState(<GameStateResponse> message);
                 break;
@@ -158,9 +202,22 @@ export class ApiService {
 
         // login was successful
         if (message.result == LoginResponse.SUCCESS) {
+            this.resumeToken = message.token;
             this.events.next(new LoginEvent(message.id, LoginResult.SUCCESS));
         }
 
+        // our previous session was resumed, and we can carry on where we left off
+        else if (message.result == LoginResponse.RESUMED) {
+            this.resumeToken = message.token;
+            this.resuming = false;
+        }
+
+        // our previous session has already ended
+        else if (message.result == LoginResponse.RESUME_FAILED) {
+            failure = true;
+            this.resumeToken = null;
+        }
+
         // the user's credentials are incorrect
         else if (message.result == LoginResponse.INVALID_LOGIN) {
             failure = true;
@@ -173,6 +230,12 @@ export class ApiService {
             this.events.next(new LoginEvent(message.id, LoginResult.SERVER_ERROR));
         }
 
+        // the server is handling too many logins right now
+        else if (message.result == LoginResponse.SERVER_BUSY) {
+            failure = true;
+            this.events.next(new LoginEvent(message.id, LoginResult.SERVER_BUSY));
+        }
+
         // if login failed, disconnect from the server
         if (failure) {
             this.socketService.disconnect();
@@ -185,7 +248,25 @@ export class ApiService {
      * @param message The message.
      */
     private processMapInfo(message: MapInfoResponse): void {
-        this.events.next(new MapInfoEvent(message.width, message.height, message.layers, message.players));
+        this.events.next(new MapInfoEvent(message.width, message.height, message.layerCount, message.players));
+    }
+
+    /**
+     * Processes a map chunk message from the server.
+     *
+     * @param message The message.
+     */
+    private processMapChunk(message: MapChunkResponse): void {
+        this.events.next(new MapChunkEvent(message.x, message.y, message.width, message.height, message.layers));
+    }
+
+    /**
+     * Processes a map area state message from the server.
+     *
+     * @param message The message.
+     */
+    private processAreaState(message: AreaStateResponse): void {
+        this.events.next(new AreaStateEvent(message.players));
     }
 
     /**
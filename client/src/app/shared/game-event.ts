@@ -4,6 +4,8 @@ export enum GameEventType {
     LOGGED_IN,
     LOGGED_OUT,
     MAP_INFO,
+    MAP_CHUNK,
+    AREA_STATE,
     GAME_STATE,
     MOVE_START,
     MOVE_STOP,
@@ -14,7 +16,8 @@ export enum GameEventType {
 export enum LoginResult {
     SUCCESS,
     INVALID_LOGIN,
-    SERVER_ERROR
+    SERVER_ERROR,
+    SERVER_BUSY
 }
 
 export abstract class GameEvent {
@@ -59,15 +62,45 @@ export class MapInfoEvent extends GameEvent {
 
     width: number;
     height: number;
-    layers: Array<Array<number>>;
+    layerCount: number;
     players: Array<PlayerInfo>;
 
-    public constructor(width: number, height: number, layers: Array<Array<number>>, players: Array<PlayerInfo>) {
+    public constructor(width: number, height: number, layerCount: number, players: Array<PlayerInfo>) {
         super(GameEventType.MAP_INFO);
 
+        this.width = width;
+        this.height = height;
+        this.layerCount = layerCount;
+        this.players = players;
+    }
+}
+
+export class MapChunkEvent extends GameEvent {
+
+    x: number;
+    y: number;
+    width: number;
+    height: number;
+    layers: Array<Array<number>>;
+
+    public constructor(x: number, y: number, width: number, height: number, layers: Array<Array<number>>) {
+        super(GameEventType.MAP_CHUNK);
+
+        this.x = x;
+        this.y = y;
         this.width = width;
         this.height = height;
         this.layers = layers;
+    }
+}
+
+export class AreaStateEvent extends GameEvent {
+
+    players: Array<PlayerInfo>;
+
+    public constructor(players: Array<PlayerInfo>) {
+        super(GameEventType.AREA_STATE);
+
         this.players = players;
     }
 }
@@ -0,0 +1,12 @@
+import {MapPlayerInfo} from "./map-player-info";
+
+/**
+ * Message that contains all players in the current map area.
+ *
+ * This is sent after a session is resumed, since the map area itself is still loaded and only the players around
+ * us might have changed in the meantime.
+ */
+export class AreaStateResponse {
+
+    players: Array<MapPlayerInfo>;
+}
@@ -2,14 +2,19 @@
  * Message that contains the results of a user's login attempt.
  *
  * The message contains a flag to indicate whether the login was successful or not. Additionally,
- * if the login was successful, then the player's assigned ID number will be included.
+ * if the login was successful, then the player's assigned ID number will be included along with a token that can
+ * be used to resume the session if the connection drops.
  */
 export class LoginResponse {
 
     public static get SUCCESS(): string { return 'success' };
     public static get INVALID_LOGIN(): string { return 'invalidLogin' };
     public static get SERVER_ERROR(): string { return 'serverError' };
+    public static get SERVER_BUSY(): string { return 'serverBusy' };
+    public static get RESUMED(): string { return 'resumed' };
+    public static get RESUME_FAILED(): string { return 'resumeFailed' };
 
     id: number;
     result: string;
+    token: string;
 }
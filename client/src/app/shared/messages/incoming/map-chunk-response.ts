@@ -0,0 +1,14 @@
+/**
+ * Message that contains the tiles for a rectangular chunk of a map area.
+ *
+ * Tiles are identified by an ID number, and are listed for each layer in row-major order. The position of the
+ * chunk is given by the coordinates of its top-left tile.
+ */
+export class MapChunkResponse {
+
+    x: number;
+    y: number;
+    width: number;
+    height: number;
+    layers: Array<Array<number>>;
+}
@@ -2,14 +2,15 @@ import {MapPlayerInfo} from "./map-player-info";
 /**
  * Message that contains a description of a map area.
  *
- * The map area includes tiles and sprites. Tiles are identified by an ID number, along with geometric
- * dimensions. Sprites are reported with all information the client needs to render them on-screen and
- * later identify them.
+ * The map area includes its dimensions and sprites. Sprites are reported with all information the client needs
+ * to render them on-screen and later identify them. Tiles are not included, and instead arrive separately in
+ * chunks as the player moves around the map area.
  */
 export class MapInfoResponse {
 
     width: number;
     height: number;
-    layers: Array<Array<number>>;
+    layerCount: number;
+    chunkSize: number;
     players: Array<MapPlayerInfo>
 }
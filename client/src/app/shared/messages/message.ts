@@ -6,11 +6,14 @@ export class MessageHeader {
     public static get CONNECTED():string { return "connected"; }
     public static get LOGIN():string { return "login"; }
     public static get MAP_INFO():string { return "mapInfo"; }
+    public static get MAP_CHUNK():string { return "mapChunk"; }
+    public static get AREA_STATE():string { return "areaState"; }
     public static get GAME_STATE():string { return "gameState"; }
     public static get MOVE_START():string { return "moveStart"; }
     public static get MOVE_STOP():string { return "moveStop"; }
     public static get ENTITY_APPEAR():string { return "entityAppear"; }
     public static get ENTITY_DISAPPEAR():string { return "entityDisappear"; }
+    public static get RESUME():string { return "resume"; }
 }
 
 /**
@@ -0,0 +1,15 @@
+import {Message, MessageHeader} from "../message";
+
+/**
+ * Message that contains a request to resume a session after the connection to the server dropped.
+ */
+export class ResumeRequest extends Message {
+
+    private token: string;
+
+    public constructor(token: string) {
+        super(MessageHeader.RESUME);
+
+        this.token = token;
+    }
+}
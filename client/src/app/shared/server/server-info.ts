@@ -7,6 +7,6 @@ import {TilesetInfo} from "./tileset-info";
 export class ServerInfo {
 
     tileSize: number;
-    tileset: TilesetInfo;
+    tilesets: Array<TilesetInfo>;
     sprites: SpritesInfo;
 }
\ No newline at end of file
@@ -1,7 +1,7 @@
 import {TileInfo} from "./tile-info";
 
 /**
- * Class that provides information about the tileset that is provided by the game server.
+ * Class that provides information about a tileset that is provided by the game server.
  */
 export class TilesetInfo {
 
@@ -0,0 +1,76 @@
+package com.mbpolan.retrorealms.beans.info;
+
+/**
+ * Bean that contains statistics about how a map area has been locked.
+ *
+ * All durations are in microseconds. Percentiles are approximate, and only accurate to within a factor of two.
+ *
+ * @author mbpolan
+ */
+public class LockStatsInfo {
+
+    private int areaId;
+    private long acquisitions;
+    private long contentions;
+    private long slowHolds;
+    private long waitP50;
+    private long waitP99;
+    private long waitMax;
+    private long holdP50;
+    private long holdP99;
+    private long holdMax;
+
+    public LockStatsInfo(int areaId, long acquisitions, long contentions, long slowHolds, long waitP50, long waitP99,
+                         long waitMax, long holdP50, long holdP99, long holdMax) {
+        this.areaId = areaId;
+        this.acquisitions = acquisitions;
+        this.contentions = contentions;
+        this.slowHolds = slowHolds;
+        this.waitP50 = waitP50;
+        this.waitP99 = waitP99;
+        this.waitMax = waitMax;
+        this.holdP50 = holdP50;
+        this.holdP99 = holdP99;
+        this.holdMax = holdMax;
+    }
+
+    public int getAreaId() {
+        return areaId;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions;
+    }
+
+    public long getContentions() {
+        return contentions;
+    }
+
+    public long getSlowHolds() {
+        return slowHolds;
+    }
+
+    public long getWaitP50() {
+        return waitP50;
+    }
+
+    public long getWaitP99() {
+        return waitP99;
+    }
+
+    public long getWaitMax() {
+        return waitMax;
+    }
+
+    public long getHoldP50() {
+        return holdP50;
+    }
+
+    public long getHoldP99() {
+        return holdP99;
+    }
+
+    public long getHoldMax() {
+        return holdMax;
+    }
+}
@@ -0,0 +1,21 @@
+package com.mbpolan.retrorealms.beans.info;
+
+import java.util.List;
+
+/**
+ * Bean that contains the outcome of reloading the game map.
+ *
+ * @author mbpolan
+ */
+public class MapReloadInfo {
+
+    private List<Integer> changedAreas;
+
+    public MapReloadInfo(List<Integer> changedAreas) {
+        this.changedAreas = changedAreas;
+    }
+
+    public List<Integer> getChangedAreas() {
+        return changedAreas;
+    }
+}
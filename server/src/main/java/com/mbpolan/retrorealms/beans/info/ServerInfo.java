@@ -1,5 +1,7 @@
 package com.mbpolan.retrorealms.beans.info;
 
+import java.util.List;
+
 /**
  * Bean that contains information about assets and other game data about this server.
  *
@@ -8,12 +10,12 @@ package com.mbpolan.retrorealms.beans.info;
 public class ServerInfo {
 
     private int tileSize;
-    private TilesetMetadataInfo tileset;
+    private List<TilesetMetadataInfo> tilesets;
     private SpritesMetadataInfo sprites;
 
-    public ServerInfo(int tileSize, TilesetMetadataInfo tileset, SpritesMetadataInfo sprites) {
+    public ServerInfo(int tileSize, List<TilesetMetadataInfo> tilesets, SpritesMetadataInfo sprites) {
         this.tileSize = tileSize;
-        this.tileset = tileset;
+        this.tilesets = tilesets;
         this.sprites = sprites;
     }
 
@@ -21,8 +23,8 @@ public class ServerInfo {
         return tileSize;
     }
 
-    public TilesetMetadataInfo getTileset() {
-        return tileset;
+    public List<TilesetMetadataInfo> getTilesets() {
+        return tilesets;
     }
 
     public SpritesMetadataInfo getSprites() {
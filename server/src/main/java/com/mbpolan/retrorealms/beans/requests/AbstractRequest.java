@@ -10,7 +10,8 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
 @JsonSubTypes({
         @JsonSubTypes.Type(value = LoginRequest.class, name = RequestHeader.LOGIN),
         @JsonSubTypes.Type(value = MoveStartRequest.class, name = RequestHeader.MOVE_START),
-        @JsonSubTypes.Type(value = MoveStopRequest.class, name = RequestHeader.MOVE_STOP)
+        @JsonSubTypes.Type(value = MoveStopRequest.class, name = RequestHeader.MOVE_STOP),
+        @JsonSubTypes.Type(value = ResumeRequest.class, name = RequestHeader.RESUME)
 })
 public abstract class AbstractRequest {
 
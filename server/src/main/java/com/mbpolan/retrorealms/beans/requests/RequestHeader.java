@@ -8,4 +8,5 @@ public final class RequestHeader {
     public static final String LOGIN = "login";
     public static final String MOVE_START = "moveStart";
     public static final String MOVE_STOP = "moveStop";
+    public static final String RESUME = "resume";
 }
@@ -0,0 +1,15 @@
+package com.mbpolan.retrorealms.beans.requests;
+
+/**
+ * Message that contains a request to resume a session that was interrupted.
+ *
+ * @author mbpolan
+ */
+public class ResumeRequest extends AbstractRequest {
+
+    private String token;
+
+    public String getToken() {
+        return token;
+    }
+}
@@ -0,0 +1,28 @@
+package com.mbpolan.retrorealms.beans.responses;
+
+import com.mbpolan.retrorealms.beans.responses.data.PlayerInfo;
+
+import java.util.List;
+
+/**
+ * Message that contains all players in a map area, without any of the area's tiles.
+ *
+ * This is sent to players who resume a session, since they already have the map area loaded and only need to catch
+ * up on who is around them.
+ *
+ * @author mbpolan
+ */
+public class AreaStateResponse extends AbstractResponse {
+
+    private List<PlayerInfo> players;
+
+    public AreaStateResponse(List<PlayerInfo> players) {
+        super("areaState");
+
+        this.players = players;
+    }
+
+    public List<PlayerInfo> getPlayers() {
+        return players;
+    }
+}
@@ -11,13 +11,18 @@ public class LoginResponse extends AbstractResponse {
 
     private final Integer id;
     private String result;
+    private String token;
 
-    public static LoginResponse createSuccess(int id) {
-        return new LoginResponse(id, LoginResult.SUCCESS.getValue());
+    public static LoginResponse createSuccess(int id, String token) {
+        return new LoginResponse(id, LoginResult.SUCCESS.getValue(), token);
+    }
+
+    public static LoginResponse createResumed(int id, String token) {
+        return new LoginResponse(id, LoginResult.RESUMED.getValue(), token);
     }
 
     public static LoginResponse createFailure(LoginResult result) {
-        return new LoginResponse(null, result.getValue());
+        return new LoginResponse(null, result.getValue(), null);
     }
 
     public Integer getId() {
@@ -28,10 +33,15 @@ public class LoginResponse extends AbstractResponse {
         return result;
     }
 
-    private LoginResponse(Integer id, String result) {
+    public String getToken() {
+        return token;
+    }
+
+    private LoginResponse(Integer id, String result, String token) {
         super("login");
 
         this.id = id;
         this.result = result;
+        this.token = token;
     }
 }
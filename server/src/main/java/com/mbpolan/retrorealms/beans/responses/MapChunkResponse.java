@@ -0,0 +1,56 @@
+package com.mbpolan.retrorealms.beans.responses;
+
+import java.util.List;
+
+/**
+ * Message that contains the tiles for a rectangular chunk of a map area.
+ *
+ * @author mbpolan
+ */
+public class MapChunkResponse extends AbstractResponse {
+
+    private int x;
+    private int y;
+    private int width;
+    private int height;
+    private List<List<Integer>> layers;
+
+    /**
+     * Creates a new map chunk message.
+     *
+     * @param x The x coordinate of the top-left tile of the chunk.
+     * @param y The y coordinate of the top-left tile of the chunk.
+     * @param width The width of the chunk, in tiles.
+     * @param height The height of the chunk, in tiles.
+     * @param layers The tile IDs in each layer of the chunk, in row-major order.
+     */
+    public MapChunkResponse(int x, int y, int width, int height, List<List<Integer>> layers) {
+        super("mapChunk");
+
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.layers = layers;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public List<List<Integer>> getLayers() {
+        return layers;
+    }
+}
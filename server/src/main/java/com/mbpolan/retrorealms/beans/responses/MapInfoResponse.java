@@ -5,20 +5,26 @@ import com.mbpolan.retrorealms.beans.responses.data.PlayerInfo;
 import java.util.List;
 
 /**
+ * Message that describes a map area a player has entered.
+ *
+ * Tiles are not included; they are streamed separately in {@link MapChunkResponse}s as the player moves around.
+ *
  * @author mbpolan
  */
 public class MapInfoResponse extends AbstractResponse {
 
     private int width;
     private int height;
-    private List<List<Integer>> layers;
+    private int layerCount;
+    private int chunkSize;
     private List<PlayerInfo> players;
 
-    public MapInfoResponse(int width, int height, List<List<Integer>> layers, List<PlayerInfo> players) {
+    public MapInfoResponse(int width, int height, int layerCount, int chunkSize, List<PlayerInfo> players) {
         super("mapInfo");
         this.width = width;
         this.height = height;
-        this.layers = layers;
+        this.layerCount = layerCount;
+        this.chunkSize = chunkSize;
         this.players = players;
     }
 
@@ -30,8 +36,12 @@ public class MapInfoResponse extends AbstractResponse {
         return height;
     }
 
-    public List<List<Integer>> getLayers() {
-        return layers;
+    public int getLayerCount() {
+        return layerCount;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
     }
 
     public List<PlayerInfo> getPlayers() {
@@ -8,7 +8,10 @@ package com.mbpolan.retrorealms.beans.responses.data;
 public enum LoginResult {
     SUCCESS        ("success"),
     INVALID_LOGIN  ("invalidLogin"),
-    SERVER_ERROR   ("serverError");
+    SERVER_ERROR   ("serverError"),
+    SERVER_BUSY    ("serverBusy"),
+    RESUMED        ("resumed"),
+    RESUME_FAILED  ("resumeFailed");
 
     public String getValue() {
         return value;
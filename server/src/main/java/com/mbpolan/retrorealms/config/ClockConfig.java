@@ -0,0 +1,39 @@
+package com.mbpolan.retrorealms.config;
+
+import com.mbpolan.retrorealms.services.SettingsService;
+import com.mbpolan.retrorealms.services.clock.GameClock;
+import com.mbpolan.retrorealms.services.clock.SimulatedClock;
+import com.mbpolan.retrorealms.services.clock.SystemClock;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for the clock that drives the game.
+ *
+ * The game runs on the system clock, unless the server is started with {@code --clock.simulated=true}. In that case
+ * time stands still until something, such as a replay, advances the clock.
+ *
+ * The system clock runs scheduled tasks on its own pool of threads, sized from the game settings, rather than on the
+ * shared Spring task scheduler.
+ *
+ * @author mbpolan
+ */
+@Configuration
+public class ClockConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "clock.simulated", havingValue = "true")
+    public GameClock simulatedClock() {
+        return new SimulatedClock(System.currentTimeMillis());
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(GameClock.class)
+    public GameClock systemClock(SettingsService settings) {
+        int workers = settings.getSchedulerWorkers();
+        return new SystemClock(workers > 0 ? workers : Runtime.getRuntime().availableProcessors(),
+                settings.getSchedulerTick());
+    }
+}
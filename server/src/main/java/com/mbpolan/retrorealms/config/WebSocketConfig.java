@@ -1,7 +1,11 @@
 package com.mbpolan.retrorealms.config;
 
+import com.mbpolan.retrorealms.services.ThreadService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.AbstractWebSocketMessageBrokerConfigurer;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
@@ -15,12 +19,32 @@ import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 @EnableWebSocketMessageBroker
 public class WebSocketConfig extends AbstractWebSocketMessageBrokerConfigurer {
 
+    @Autowired
+    private ThreadService threads;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
         registry.enableSimpleBroker("/queue", "/topic");
         registry.setApplicationDestinationPrefixes("/api");
     }
 
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // with virtual threads, every inbound message is handled on a virtual thread, otherwise the default bounded
+        // pool of platform threads is kept. Spring only takes a thread pool here, so it is set up to never queue a
+        // message and to start a new thread whenever none is idle, which is all but a new thread for each message
+        if (threads.isVirtual()) {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setThreadFactory(threads.createThreadFactory("clientInboundChannel-"));
+
+            registration.taskExecutor(executor)
+                    .corePoolSize(0)
+                    .maxPoolSize(Integer.MAX_VALUE)
+                    .queueCapacity(0)
+                    .keepAliveSeconds(1);
+        }
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/client")
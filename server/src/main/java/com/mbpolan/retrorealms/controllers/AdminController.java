@@ -0,0 +1,79 @@
+package com.mbpolan.retrorealms.controllers;
+
+import com.mbpolan.retrorealms.beans.info.LockStatsInfo;
+import com.mbpolan.retrorealms.beans.info.MapReloadInfo;
+import com.mbpolan.retrorealms.services.GameService;
+import com.mbpolan.retrorealms.services.MapService;
+import com.mbpolan.retrorealms.services.beans.LatencyHistogram;
+import com.mbpolan.retrorealms.services.beans.LockStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Controller that provides administrative operations on the running server.
+ *
+ * Requests are only routed here when the game settings enable administration; see
+ * {@link com.mbpolan.retrorealms.services.AdminFilter}.
+ *
+ * @author mbpolan
+ */
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private MapService mapService;
+
+    @PostMapping("/map/reload")
+    private CompletableFuture<MapReloadInfo> reloadMap() {
+        return gameService.reloadMap().thenApply(MapReloadInfo::new);
+    }
+
+    @GetMapping("/locks")
+    private List<LockStatsInfo> getLockStats() {
+        return mapService.getLockStats().entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(e -> createLockStatsInfo(e.getKey(), e.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Summarizes the lock statistics of a map area.
+     *
+     * @param areaId The ID number of the map area.
+     * @param stats The lock statistics of the area.
+     * @return A {@link LockStatsInfo} bean.
+     */
+    private static LockStatsInfo createLockStatsInfo(int areaId, LockStats stats) {
+        LatencyHistogram waits = stats.getWaits();
+        LatencyHistogram holds = stats.getHolds();
+
+        return new LockStatsInfo(
+                areaId,
+                stats.getAcquisitions(),
+                stats.getContentions(),
+                stats.getSlowHolds(),
+                toMicros(waits.getPercentile(0.5)),
+                toMicros(waits.getPercentile(0.99)),
+                toMicros(waits.getMax()),
+                toMicros(holds.getPercentile(0.5)),
+                toMicros(holds.getPercentile(0.99)),
+                toMicros(holds.getMax()));
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -1,9 +1,9 @@
 package com.mbpolan.retrorealms.controllers;
 
 import com.mbpolan.retrorealms.beans.requests.*;
-import com.mbpolan.retrorealms.repositories.entities.UserAccount;
-import com.mbpolan.retrorealms.services.AuthService;
 import com.mbpolan.retrorealms.services.GameService;
+import com.mbpolan.retrorealms.services.InputRecorder;
+import com.mbpolan.retrorealms.services.LoginService;
 import com.mbpolan.retrorealms.services.beans.Direction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,11 +21,14 @@ public class GameController {
     private static final Logger LOG = LoggerFactory.getLogger(GameController.class);
 
     @Autowired
-    private AuthService authService;
+    private LoginService loginService;
 
     @Autowired
     private GameService gameService;
 
+    @Autowired
+    private InputRecorder recorder;
+
     /**
      * WebSocket subscription handler for all game-related requests.
      *
@@ -35,6 +38,7 @@ public class GameController {
     @SubscribeMapping("/game")
     public void handleRequest(AbstractRequest request, SimpMessageHeaderAccessor headers) {
         String sessionId = headers.getSessionId();
+        recorder.record(sessionId, request);
 
         // figure out what kind of message this is based on the header identifier
         switch (request.getHeader()) {
@@ -42,6 +46,10 @@ public class GameController {
                 handleLogin(sessionId, (LoginRequest) request);
                 break;
 
+            case RequestHeader.RESUME:
+                handleResume(sessionId, (ResumeRequest) request);
+                break;
+
             case RequestHeader.MOVE_START:
                 handleMoveStart(sessionId, (MoveStartRequest) request);
                 break;
@@ -63,16 +71,17 @@ public class GameController {
      * @param request The request payload.
      */
     private void handleLogin(String sessionId, LoginRequest request) {
-        UserAccount account = authService.authenticate(request.getUsername(), request.getPassword());
-        if (account != null) {
-            if (gameService.addPlayer(sessionId, account)) {
-                authService.updateLastLogin(account);
-            }
-        }
+        loginService.login(sessionId, request.getUsername(), request.getPassword());
+    }
 
-        else {
-            gameService.rejectPlayer(sessionId);
-        }
+    /**
+     * Handles a request to resume a session that was interrupted.
+     *
+     * @param sessionId The player's new websocket session ID.
+     * @param request The request payload.
+     */
+    private void handleResume(String sessionId, ResumeRequest request) {
+        gameService.resumePlayer(sessionId, request.getToken());
     }
 
     /**
@@ -2,7 +2,6 @@ package com.mbpolan.retrorealms.controllers;
 
 import com.mbpolan.retrorealms.beans.info.ServerInfo;
 import com.mbpolan.retrorealms.beans.info.SpritesMetadataInfo;
-import com.mbpolan.retrorealms.beans.info.TilesetMetadataInfo;
 import com.mbpolan.retrorealms.services.MapService;
 import com.mbpolan.retrorealms.services.ServerInfoService;
 import com.mbpolan.retrorealms.services.SettingsService;
@@ -42,7 +41,7 @@ public class InfoController {
     @GetMapping
     private ServerInfo getServerInfo() {
         return new ServerInfo(map.getTileSize(),
-                new TilesetMetadataInfo(infoService.getTilesetName(), infoService.getTilesetSource(), infoService.getTiles()),
+                infoService.getTilesets(),
                 new SpritesMetadataInfo(sprites.getName(), sprites.getPath(), sprites.getResource()));
     }
 }
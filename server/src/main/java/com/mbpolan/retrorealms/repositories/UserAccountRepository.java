@@ -12,5 +12,5 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface UserAccountRepository extends JpaRepository<UserAccount, Long> {
 
-    UserAccount findByUsernameAndPassword(String username, String password);
+    UserAccount findByUsername(String username);
 }
@@ -64,18 +64,34 @@ public class UserAccount {
         return direction;
     }
 
+    public void setDirection(String direction) {
+        this.direction = direction;
+    }
+
     public int getMapArea() {
         return mapArea;
     }
 
+    public void setMapArea(int mapArea) {
+        this.mapArea = mapArea;
+    }
+
     public int getX() {
         return x;
     }
 
+    public void setX(int x) {
+        this.x = x;
+    }
+
     public int getY() {
         return y;
     }
 
+    public void setY(int y) {
+        this.y = y;
+    }
+
     public int getSpeed() {
         return speed;
     }
@@ -90,4 +106,22 @@ public class UserAccount {
 
     private UserAccount() {
     }
+
+    /**
+     * Creates a detached copy of another account.
+     *
+     * @param other The account to copy.
+     */
+    public UserAccount(UserAccount other) {
+        this.id = other.id;
+        this.username = other.username;
+        this.password = other.password;
+        this.sprite = other.sprite;
+        this.direction = other.direction;
+        this.mapArea = other.mapArea;
+        this.x = other.x;
+        this.y = other.y;
+        this.speed = other.speed;
+        this.lastLogin = other.lastLogin;
+    }
 }
@@ -0,0 +1,79 @@
+package com.mbpolan.retrorealms.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Filter that guards the administrative endpoints under {@code /admin}.
+ *
+ * The endpoints share the port that players connect to, so they are disabled unless the game settings enable them,
+ * and by default they only accept requests from the machine the server runs on. Rejected requests are answered as
+ * if the endpoints did not exist.
+ *
+ * @author mbpolan
+ */
+@Component
+public class AdminFilter implements Filter {
+
+    @Autowired
+    private SettingsService settings;
+
+    // resolves paths the same way request mappings are matched, so encoded paths can't slip past the filter
+    private final UrlPathHelper pathHelper = new UrlPathHelper();
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest req = (HttpServletRequest) request;
+        HttpServletResponse res = (HttpServletResponse) response;
+
+        String path = pathHelper.getPathWithinApplication(req);
+        if ((path.equals("/admin") || path.startsWith("/admin/")) && !isAllowed(req)) {
+            res.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        chain.doFilter(request, response);
+    }
+
+    @Override
+    public void destroy() {
+
+    }
+
+    /**
+     * Determines if a request may use the administrative endpoints.
+     *
+     * @param req The request.
+     * @return true if the request is allowed, false otherwise.
+     */
+    private boolean isAllowed(HttpServletRequest req) {
+        if (!settings.isAdminEnabled()) {
+            return false;
+        }
+
+        else if (!settings.isAdminLocalOnly()) {
+            return true;
+        }
+
+        try {
+            return InetAddress.getByName(req.getRemoteAddr()).isLoopbackAddress();
+        }
+
+        catch (UnknownHostException ex) {
+            return false;
+        }
+    }
+}
@@ -5,12 +5,17 @@ import com.mbpolan.retrorealms.repositories.entities.UserAccount;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.sql.Timestamp;
-import java.util.Optional;
+import javax.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Service that handles incoming authentication requests from clients.
  *
+ * Recently used accounts are kept in a bounded cache, so that players who reconnect can be authenticated without a
+ * trip to the database. Cached accounts expire after a while, and are evicted whenever their data is written. Callers
+ * always receive their own copy of an account, since logging in modifies it.
+ *
  * @author mbpolan
  */
 @Service
@@ -19,6 +24,31 @@ public class AuthService {
     @Autowired
     private UserAccountRepository users;
 
+    @Autowired
+    private SettingsService settings;
+
+    // cached accounts keyed by usernames, in order of least to most recently used
+    private LinkedHashMap<String, CachedAccount> cache;
+
+    // incremented each time an account is evicted, to detect loads that raced with a write
+    private long generation;
+
+    private int cacheTtl;
+
+    @PostConstruct
+    public void init() {
+        int cacheSize = settings.getAccountCacheSize();
+
+        this.cacheTtl = settings.getAccountCacheTtl();
+        this.cache = new LinkedHashMap<String, CachedAccount>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedAccount> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
     /**
      * Authenticates a username and password credential against the backend database.
      *
@@ -27,16 +57,75 @@ public class AuthService {
      * @return A {@link UserAccount} bean if the credentials are valid.
      */
     public UserAccount authenticate(String username, String password) {
-        return users.findByUsernameAndPassword(username, password);
+        UserAccount account = findAccount(username);
+
+        return account != null && account.getPassword().equals(password) ? account : null;
+    }
+
+    /**
+     * Returns a user account without checking any credentials.
+     *
+     * This is only meant for replaying recorded inputs, which don't include passwords.
+     *
+     * @param username The username of the account.
+     * @return The {@link UserAccount}, or null if no such account exists.
+     */
+    public UserAccount getAccount(String username) {
+        return findAccount(username);
     }
 
     /**
-     * Updates the last login timestamp for a user account.
+     * Evicts a user account from the cache, so that it will be loaded again the next time it's needed.
      *
-     * @param account The user account.
+     * @param username The username of the account.
      */
-    public void updateLastLogin(UserAccount account) {
-        account.setLastLogin(new Timestamp(System.currentTimeMillis()));
-        users.save(account);
+    public synchronized void invalidate(String username) {
+        cache.remove(username);
+        generation++;
+    }
+
+    /**
+     * Returns a user account, preferring a cached copy if one is available.
+     *
+     * @param username The username of the account.
+     * @return The {@link UserAccount}, or null if no such account exists.
+     */
+    private UserAccount findAccount(String username) {
+        long now = System.currentTimeMillis();
+        long loadGeneration;
+
+        synchronized (this) {
+            CachedAccount cached = cache.get(username);
+            if (cached != null && now - cached.loadedAt < cacheTtl) {
+                return new UserAccount(cached.account);
+            }
+
+            loadGeneration = generation;
+        }
+
+        UserAccount account = users.findByUsername(username);
+
+        // only cache the account if nothing was written while we were loading it
+        synchronized (this) {
+            if (account != null && generation == loadGeneration) {
+                cache.put(username, new CachedAccount(new UserAccount(account), now));
+            }
+        }
+
+        return account;
+    }
+
+    /**
+     * A user account along with the time it was loaded from the database.
+     */
+    private static class CachedAccount {
+
+        private final UserAccount account;
+        private final long loadedAt;
+
+        CachedAccount(UserAccount account, long loadedAt) {
+            this.account = account;
+            this.loadedAt = loadedAt;
+        }
     }
 }
@@ -1,10 +1,14 @@
 package com.mbpolan.retrorealms.services;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mbpolan.retrorealms.beans.responses.*;
 import com.mbpolan.retrorealms.beans.responses.data.LoginResult;
 import com.mbpolan.retrorealms.beans.responses.data.PlayerInfo;
 import com.mbpolan.retrorealms.repositories.entities.UserAccount;
 import com.mbpolan.retrorealms.services.beans.*;
+import com.mbpolan.retrorealms.services.clock.GameClock;
+import com.mbpolan.retrorealms.services.clock.ScheduledTask;
 import com.mbpolan.retrorealms.services.map.Door;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,19 +16,26 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationListener;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
-import org.springframework.scheduling.TaskScheduler;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
-import java.util.Date;
-import java.util.HashMap;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -44,53 +55,245 @@ public class GameService implements ApplicationListener<SessionDisconnectEvent>
     private SettingsService settings;
 
     @Autowired
-    private TaskScheduler scheduler;
+    private GameClock clock;
 
     @Autowired
     private SimpMessagingTemplate socket;
 
-    // map of all players in the game now, keyed by their session IDs
-    private Map<String, Player> players;
-    private volatile int lastPlayerId = 0;
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private PersistenceService persistence;
+
+    @Autowired
+    private SnapshotService snapshots;
+
+    @Autowired
+    private OverloadService overload;
+
+    @Autowired
+    private InputRecorder recorder;
+
+    // all players in the game now, including those whose connection dropped
+    private PlayerRegistry players;
+
+    // map of players whose connection dropped, keyed by their resume tokens
+    private Map<String, ParkedPlayer> parkedPlayers;
+    private SecureRandom random;
+
+    // held while players log in, resume or disconnect, so that no two of those interleave; unlike a monitor, a
+    // virtual thread that waits for it, or for a map area lock while holding it, lets go of its carrier thread
+    private final ReentrantLock sessionLock = new ReentrantLock();
+
+    // map areas whose game state is being sent out right now
+    private Set<MapArea> dispatchingAreas;
+
+    // sends out game states of different map areas in parallel, if any workers are configured
+    private ExecutorService dispatchExecutor;
+
+    // when the game state dispatcher last ran, used to measure how late it is running
+    private volatile long lastDispatcherRun;
+
+    private Function<AbstractResponse, String> encoder;
 
     @PostConstruct
     public void init() throws IOException {
-        this.players = new HashMap<>();
+        this.players = new PlayerRegistry();
+        this.parkedPlayers = new ConcurrentHashMap<>();
+        this.random = new SecureRandom();
+        this.dispatchingAreas = ConcurrentHashMap.newKeySet();
+        this.encoder = this::encode;
+        this.lastDispatcherRun = clock.millis();
+
+        AtomicInteger threadId = new AtomicInteger(0);
+        int workers = settings.getDispatchWorkers();
+
+        if (workers > 0) {
+            this.dispatchExecutor = Executors.newFixedThreadPool(workers,
+                    r -> new Thread(r, "state-dispatch-" + threadId.incrementAndGet()));
+        }
+
+        clock.scheduleWithFixedDelay(this::gameStateDispatcher, settings.getDispatchMinInterval());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        sessionLock.lock();
+
+        try {
+            if (dispatchExecutor != null) {
+                dispatchExecutor.shutdownNow();
+            }
+
+            // make sure the latest state of everyone still in the game is saved before the server stops
+            players.getPlayers().forEach(p -> {
+                MapArea area = lockPlayerArea(p);
+                persistence.markDirty(p);
+                area.unlock();
+            });
+        }
+
+        finally {
+            sessionLock.unlock();
+        }
+    }
+
+    /**
+     * Scheduled task that removes a player who did not resume their session in time.
+     *
+     * @param token The resume token that the player was parked under.
+     * @param parked The parked player.
+     */
+    private void expireParkedPlayer(String token, ParkedPlayer parked) {
+        // the player might have resumed or logged in again just as their grace period ended, in which case they
+        // already took the parked player out of the map
+        if (parkedPlayers.remove(token, parked)) {
+            removePlayer(parked.player);
+        }
     }
 
     /**
      * Scheduled task that sends out updated game states to players.
+     *
+     * Each map area is dispatched separately, on the dispatch workers if there are any, so that a crowded area does
+     * not hold up updates for the others. An area whose update from a previous cycle is still being sent is skipped
+     * until the next cycle, which keeps its updates in order.
+     *
+     * The dispatcher runs at the fastest configured rate, but each area is only updated once its next update is due.
+     * How soon that is depends on how active the area was, so that busy areas are updated often while areas with
+     * just a few moving players are updated less frequently.
      */
-    @Scheduled(fixedDelay = 200)
-    public void gameStateDispatcher() {
-        // recompute the state of each map area
-        map.getMapAreas().forEach(a -> {
-            a.lock();
+    private void gameStateDispatcher() {
+        long now = clock.millis();
+        overload.recordLag(now - lastDispatcherRun - settings.getDispatchMinInterval());
+        this.lastDispatcherRun = now;
 
-            GameState state = a.popState();
-            if (state != null) {
-                // compute an updated game state for this area
-                GameStateResponse gameState = new GameStateResponse(
-                        state.getPlayers().stream()
-                                .map(p -> new PlayerInfo(p.getId(), null, null, p.plane().getX1(), p.plane().getY1(), null))
-                                .collect(Collectors.toList()));
-
-                // if the state has changed, notify all the players in that area only
-                a.sendToAll(gameState);
+        long deadline = now + settings.getDispatchDeadline();
+
+        // recompute the state of each map area that has players in it
+        map.getOccupiedMapAreas().forEach(a -> {
+            if (now < a.getNextDispatch()) {
+                return;
+            }
+
+            // most areas won't have changed, and they can be skipped without locking them
+            if (!a.hasPendingState() || !dispatchingAreas.add(a)) {
+                return;
+            }
+
+            if (dispatchExecutor == null) {
+                dispatchAreaState(a, deadline);
             }
 
-            a.unlock();
+            else {
+                try {
+                    dispatchExecutor.execute(() -> dispatchAreaState(a, deadline));
+                }
+
+                catch (RejectedExecutionException ex) {
+                    // the server is shutting down
+                    dispatchingAreas.remove(a);
+                }
+            }
         });
     }
 
+    /**
+     * Sends out the updated game state of a single map area to the players in it.
+     *
+     * The state is captured while the area is locked, but it is encoded and sent only after the lock is released,
+     * so that players in the area can keep moving in the meantime. The area's dispatch buffer is reused for each
+     * update, which is safe since only one thread dispatches an area at a time.
+     *
+     * @param area The map area.
+     * @param deadline The time, according to the game clock, after which the update is deferred to the next cycle.
+     */
+    private void dispatchAreaState(MapArea area, long deadline) {
+        try {
+            // the workers might have been too busy with other areas to get to this one in time
+            if (clock.millis() > deadline) {
+                LOG.debug("Deferring state update for map area {} past the dispatch deadline", area.getId());
+                return;
+            }
+
+            GameStateBuffer buffer = area.getDispatchBuffer();
+            boolean changed = false;
+
+            area.lock();
+
+            GameState state = area.popState();
+            if (state != null) {
+                // capture an updated game state for this area, without creating beans for each player
+                buffer.capture(state, area.getPlayers());
+                changed = true;
+
+                // the more players changed, the sooner the area is updated again
+                area.setNextDispatch(clock.millis() + computeDispatchInterval(buffer.size()));
+            }
+
+            area.unlock();
+
+            // if the state has changed, notify all the players in that area only
+            if (changed) {
+                String encoded = buffer.encode();
+                List<Player> recipients = buffer.getRecipients();
+
+                for (int i = 0; i < recipients.size(); i++) {
+                    recipients.get(i).send(encoded);
+                }
+
+                buffer.clear();
+            }
+        }
+
+        catch (RuntimeException ex) {
+            LOG.error("Failed to dispatch game state for map area {}", area.getId(), ex);
+        }
+
+        finally {
+            dispatchingAreas.remove(area);
+        }
+    }
+
+    /**
+     * Computes how long to wait before a map area is sent its next game state update.
+     *
+     * @param changedPlayers The number of players that changed in the area's last update.
+     * @return The dispatch interval, in milliseconds.
+     */
+    private long computeDispatchInterval(int changedPlayers) {
+        int min = settings.getDispatchMinInterval();
+        int max = settings.getDispatchMaxInterval();
+        int busy = Math.max(1, settings.getDispatchBusyPlayers());
+
+        long interval = max - (long) (max - min) * Math.min(changedPlayers, busy) / busy;
+
+        // when the server is falling behind, every area is updated less often
+        return interval * overload.getDispatchIntervalFactor();
+    }
+
+    /**
+     * Reloads the game map, replacing any areas that have changed.
+     *
+     * Players in replaced areas are migrated to the new areas and sent a fresh map update; players in areas that
+     * did not change are not affected.
+     *
+     * @return A future that completes with the ID numbers of all changed areas.
+     */
+    public CompletableFuture<List<Integer>> reloadMap() {
+        return map.reload(area -> area.getPlayers().forEach(p -> sendMapInfoTo(p, area)));
+    }
+
     /**
      * Rejects a player from the game.
      *
      * @param sessionId The session ID of the player.
+     * @param result The reason the player was rejected.
      */
-    public void rejectPlayer(String sessionId) {
-        new Player(0, sessionId, null, null, Direction.DOWN, socket)
-                .send(LoginResponse.createFailure(LoginResult.INVALID_LOGIN));
+    public void rejectPlayer(String sessionId, LoginResult result) {
+        new Player(0, null, sessionId, null, null, Direction.DOWN, socket)
+                .send(LoginResponse.createFailure(result));
     }
 
     /**
@@ -100,35 +303,205 @@ public class GameService implements ApplicationListener<SessionDisconnectEvent>
      * @param account Data about the user's account.
      * @return true if the player was successfully added to the game, false otherwise.
      */
-    public synchronized boolean addPlayer(String sessionId, UserAccount account) {
-        if (players.containsKey(sessionId)) {
-            LOG.error("Player session already exists: {}");
-            return false;
+    public boolean addPlayer(String sessionId, UserAccount account) {
+        sessionLock.lock();
+
+        try {
+            if (players.hasSession(sessionId)) {
+                LOG.error("Player session already exists: {}", sessionId);
+                return false;
+            }
+
+            // if this user is still in the game from a previous session, end that session now
+            Player previous = players.findByUsername(account.getUsername());
+            if (previous != null) {
+                ParkedPlayer parked = parkedPlayers.remove(previous.getResumeToken());
+                if (parked != null) {
+                    parked.expiry.cancel();
+                }
+
+                previous.setMoving(false);
+                previous.disconnect();
+                removePlayer(previous);
+            }
+
+            // the player's last known state might not have been saved yet if they logged in again quickly
+            persistence.applyPendingState(account);
+
+            // put the player back where they left off, unless that area has since been removed from the map
+            MapArea area = map.lockMapArea(account.getMapArea());
+            if (area == null) {
+                LOG.warn("Map area {} no longer exists, moving {} to the spawn point", account.getMapArea(),
+                        account.getUsername());
+
+                account.setMapArea(settings.getPlayerSpawnArea());
+                account.setX(settings.getPlayerSpawnX());
+                account.setY(settings.getPlayerSpawnY());
+
+                area = map.lockMapArea(account.getMapArea());
+                if (area == null) {
+                    LOG.error("Spawn map area {} does not exist", account.getMapArea());
+                    rejectPlayer(sessionId, LoginResult.SERVER_ERROR);
+                    return false;
+                }
+            }
+
+            persistence.recordLogin(account);
+
+            // create a new player and put them in the global player map
+            Player player = new Player(players.allocateId(), account.getId(), sessionId, account.getUsername(),
+                    account.getSprite(), Direction.fromValue(account.getDirection()), socket);
+            player.setAbsolutePosition(account.getMapArea(), account.getX(), account.getY());
+            player.setResumeToken(createResumeToken());
+            player.setMoveTimer(clock.createTimer(() -> onMovePlayer(player)));
+
+            try {
+                // tell the player their login was successful
+                player.send(LoginResponse.createSuccess(player.getId(), player.getResumeToken()));
+
+                // add the player to the map area
+                area.addPlayer(player);
+
+                // and send the player their initial map update
+                sendMapInfoTo(player, area);
+
+                // notify spectators that this player has appeared
+                area.sendToAll(new EntityAppearResponse(createPlayerInfo(player)), player);
+
+                // requests from the player can only be handled once they are in their map area
+                players.add(player);
+            }
+
+            catch (RuntimeException ex) {
+                // the player never made it into the game, so their ID can be given to someone else
+                area.removePlayer(player);
+                players.releaseId(player.getId());
+
+                throw ex;
+            }
+
+            finally {
+                area.unlock();
+            }
+
+            // only logins that made it this far are replayed
+            recorder.recordLogin(sessionId, player.getUsername());
+
+            return true;
         }
 
-        // create a new player and put them in the global player map
-        Player player = new Player(lastPlayerId++, sessionId, account.getUsername(), account.getSprite(),
-                Direction.fromValue(account.getDirection()), socket);
-        player.setAbsolutePosition(account.getMapArea(), account.getX(), account.getY());
-        players.put(sessionId, player);
+        finally {
+            sessionLock.unlock();
+        }
+    }
 
-        // tell the player their login was successful
-        player.send(LoginResponse.createSuccess(player.getId()));
+    /**
+     * Returns the registry of all players in the game.
+     *
+     * @return The {@link PlayerRegistry}.
+     */
+    PlayerRegistry getPlayerRegistry() {
+        return players;
+    }
 
-        // add the player to the map area
-        MapArea area = map.getMapArea(player.getMapArea());
-        area.lock();
-        area.addPlayer(player);
+    /**
+     * Returns the resume token that was last issued to a player.
+     *
+     * This is only meant for replaying recorded inputs, since tokens themselves are never recorded.
+     *
+     * @param username The player's username.
+     * @return The resume token, or null if no such player is in the game.
+     */
+    public String getResumeToken(String username) {
+        Player player = players.findByUsername(username);
 
-        // and send the player their initial map update
-        sendMapInfoTo(player, area);
+        return player != null ? player.getResumeToken() : null;
+    }
 
-        // notify spectators that this player has appeared
-        area.sendToAll(new EntityAppearResponse(createPlayerInfo(player)), player);
+    /**
+     * Reattaches a player whose connection dropped to a new websocket session.
+     *
+     * The player keeps their ID number and position, and since they should still have their map area loaded, they
+     * are only sent the players and tiles around them. If the area was reloaded in the meantime, a full map update is
+     * sent instead.
+     *
+     * @param sessionId The player's new websocket session ID.
+     * @param token The resume token that was issued to the player.
+     */
+    public void resumePlayer(String sessionId, String token) {
+        sessionLock.lock();
 
-        area.unlock();
+        try {
+            // a session that is already in the game can't take over another player
+            ParkedPlayer parked = players.hasSession(sessionId) ? null : parkedPlayers.remove(token);
+
+            if (parked == null) {
+                LOG.debug("Cannot resume session {} with an unknown token", sessionId);
+                rejectPlayer(sessionId, LoginResult.RESUME_FAILED);
+                return;
+            }
+
+            parked.expiry.cancel();
 
-        return true;
+            // the grace period might have ended before the player's timeout got to run
+            if (parked.expiresAt <= clock.millis()) {
+                LOG.debug("Cannot resume session {} with an expired token", sessionId);
+                removePlayer(parked.player);
+                rejectPlayer(sessionId, LoginResult.RESUME_FAILED);
+                return;
+            }
+
+            // reattach the player to their new session, and issue a new token so the old one can't be used again
+            Player player = parked.player;
+            player.reconnect(sessionId);
+            player.setResumeToken(createResumeToken());
+            players.bindSession(player);
+
+            player.send(LoginResponse.createResumed(player.getId(), player.getResumeToken()));
+            recorder.recordResume(sessionId, player.getUsername());
+
+            // nothing in the area changes, and the player's walk was stopped when they were parked, so the area only
+            // needs to be locked for reading
+            MapArea area;
+            long stamp;
+
+            while (true) {
+                int areaId = player.getMapArea();
+                area = map.getMapArea(areaId);
+                stamp = area.lockRead();
+
+                // the area might have been replaced while we waited for the lock
+                if (!area.isRetired() && player.getMapArea() == areaId) {
+                    break;
+                }
+
+                area.unlockRead(stamp);
+            }
+
+            try {
+                if (area != parked.area) {
+                    sendMapInfoTo(player, area);
+                }
+
+                else {
+                    player.send(new AreaStateResponse(area.getPlayers().stream()
+                            .map(GameService::createPlayerInfo)
+                            .collect(Collectors.toList())));
+
+                    // chunks that were sent to the previous session might never have arrived
+                    player.resetChunks();
+                    sendChunksTo(player, area);
+                }
+            }
+
+            finally {
+                area.unlockRead(stamp);
+            }
+        }
+
+        finally {
+            sessionLock.unlock();
+        }
     }
 
     /**
@@ -137,17 +510,42 @@ public class GameService implements ApplicationListener<SessionDisconnectEvent>
      * @param sessionId The player's websocket session ID.
      * @param direction The direction to move the player.
      */
-    public synchronized void movePlayer(String sessionId, Direction direction) {
-        Player player = players.get(sessionId);
-        long now = System.currentTimeMillis();
+    public void movePlayer(String sessionId, Direction direction) {
+        Player player = players.findBySession(sessionId);
+        long now = clock.millis();
+
+        // ignore requests from sessions whose login has not completed yet
+        if (player == null) {
+            return;
+        }
 
         // have the player start moving if they aren't already, and if they haven't moved "recently"
         if (!player.isMoving() && now - player.getLastMovement() >= settings.getPlayerWalkDelay()) {
-            MapArea area = map.getMapArea(player.getMapArea());
+            // test if the player can move before taking the area's lock, so that other players aren't held up
+            MapArea area;
+            boolean canMove;
 
-            // test if the player can move, and if so, schedule their next movement
-            area.lock();
-            if (area.canPlayerMove(player, direction)) {
+            while (true) {
+                int areaId = player.getMapArea();
+                area = map.getMapArea(areaId);
+                canMove = area.lockAndTestMove(player, direction);
+
+                // the area might have been replaced, or the player relocated, while we waited for the lock
+                if (!area.isRetired() && player.getMapArea() == areaId) {
+                    break;
+                }
+
+                area.unlock();
+            }
+
+            // the player might have started moving or disconnected while we waited for the lock
+            if (player.isMoving() || !player.isConnected()) {
+                area.unlock();
+                return;
+            }
+
+            // if the player can move, schedule their next movement
+            if (canMove) {
                 player.setLastMovement(now);
                 player.setMoving(true);
                 player.setDirection(direction);
@@ -156,7 +554,7 @@ public class GameService implements ApplicationListener<SessionDisconnectEvent>
                 area.sendToAll(new EntityMoveStartResponse(player.getId(), player.getDirection().getValue()));
 
                 // schedule the movement immediately
-                scheduleWithDelay(() -> onMovePlayer(player), settings.getPlayerWalkDelay());
+                scheduleNextMove(player, area);
             }
 
             else {
@@ -172,11 +570,11 @@ public class GameService implements ApplicationListener<SessionDisconnectEvent>
      *
      * @param sessionId The player's websocket session ID.
      */
-    public synchronized void stopPlayer(String sessionId) {
-        Player player = players.get(sessionId);
+    public void stopPlayer(String sessionId) {
+        Player player = players.findBySession(sessionId);
 
         // have the player stop moving immediately if they haven't already
-        if (player.isMoving()) {
+        if (player != null && player.isMoving()) {
             onStopPlayer(player);
         }
     }
@@ -187,27 +585,89 @@ public class GameService implements ApplicationListener<SessionDisconnectEvent>
      * @param event The application event.
      */
     @Override
-    public synchronized void onApplicationEvent(SessionDisconnectEvent event) {
+    public void onApplicationEvent(SessionDisconnectEvent event) {
         StompHeaderAccessor stomp = StompHeaderAccessor.wrap(event.getMessage());
-        String sessionId = stomp.getSessionId();
 
-        LOG.debug("User with session {} disconnected", sessionId);
-        players.values().stream()
-                .filter(p -> p.getSessionId().equals(sessionId))
-                .findFirst()
-                .ifPresent(p -> {
-                    MapArea area = map.getMapArea(p.getMapArea());
-                    area.lock();
+        disconnectPlayer(stomp.getSessionId());
+    }
+
+    /**
+     * Handles a player's connection to the server ending.
+     *
+     * The player stays in the game for a while so that they can resume their session.
+     *
+     * @param sessionId The player's websocket session ID.
+     */
+    public void disconnectPlayer(String sessionId) {
+        sessionLock.lock();
+
+        try {
+            LOG.debug("User with session {} disconnected", sessionId);
 
-                    // remove the player from his map area and from the global player map
-                    area.removePlayer(p);
-                    players.remove(p.getUsername());
+            Player player = players.unbindSession(sessionId);
+            if (player != null) {
+                MapArea area = lockPlayerArea(player);
+
+                // stop the player where they are and keep them in their map area for a while, in case they reconnect
+                if (player.isMoving()) {
+                    onStopPlayerInArea(player, area);
+                }
 
-                    // notify spectators that this player has disappeared
-                    area.sendToAll(new EntityDisappearResponse(p.getId()));
+                player.disconnect();
+                persistence.markDirtyAndFlush(player);
 
-                    area.unlock();
-                });
+                String token = player.getResumeToken();
+                ParkedPlayer parked = new ParkedPlayer(player, area, clock.millis() + settings.getPlayerResumeGrace());
+
+                parked.expiry = clock.schedule(() -> expireParkedPlayer(token, parked), settings.getPlayerResumeGrace(),
+                        area.getId());
+                parkedPlayers.put(token, parked);
+
+                area.unlock();
+            }
+
+            LOG.debug("{} players in game, {} connected", players.size(), players.getSessionCount());
+        }
+
+        finally {
+            sessionLock.unlock();
+        }
+    }
+
+    /**
+     * Removes a player from the game and from their map area.
+     *
+     * @param player The player to remove.
+     */
+    private void removePlayer(Player player) {
+        MapArea area = lockPlayerArea(player);
+
+        // remove the player from his map area, along with any step he was about to take
+        area.removePlayer(player);
+        player.cancelNextMove();
+
+        // save where the player left off
+        persistence.markDirtyAndFlush(player);
+
+        // notify spectators that this player has disappeared
+        area.sendToAll(new EntityDisappearResponse(player.getId()));
+
+        area.unlock();
+
+        // only now can the player's ID be given to someone else
+        players.remove(player);
+    }
+
+    /**
+     * Generates a random token that a player can use to resume their session.
+     *
+     * @return The resume token.
+     */
+    private String createResumeToken() {
+        byte[] bytes = new byte[24];
+        random.nextBytes(bytes);
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
     }
 
     /**
@@ -229,80 +689,144 @@ public class GameService implements ApplicationListener<SessionDisconnectEvent>
     /**
      * Convenience method to send map information to a single player.
      *
+     * Only the chunks of tiles around the player's position are sent along with the map information.
+     *
      * @param player The player.
      * @param area The map area to serialize and send to the player.
      */
-    private static void sendMapInfoTo(Player player, MapArea area) {
-        List<List<Integer>> tileIds = area.getTileIds();
+    private void sendMapInfoTo(Player player, MapArea area) {
         List<PlayerInfo> playerInfos = area.getPlayers().stream()
                 .map(GameService::createPlayerInfo)
                 .collect(Collectors.toList());
 
-        player.send(new MapInfoResponse(area.getWidth(), area.getHeight(), tileIds, playerInfos));
+        player.send(new MapInfoResponse(area.getWidth(), area.getHeight(), area.getLayerCount(),
+                area.getChunkSize(), playerInfos));
+
+        player.resetChunks();
+        sendChunksTo(player, area);
     }
 
     /**
-     * Scheduled task for moving a player to another position.
+     * Sends chunks of tiles around a player's position that they have not yet received.
      *
-     * @param player The moving player.
+     * Nothing is sent if the player has not moved into another chunk since the last time this method was invoked.
+     *
+     * @param player The player.
+     * @param area The map area the player is in.
      */
-    private void onMovePlayer(Player player) {
-        // attempt to move the player, and if successful, schedule their next movement afterwards
-        if (player.isMoving()) {
-            player.setLastMovement(System.currentTimeMillis());
+    private void sendChunksTo(Player player, MapArea area) {
+        Rectangle plane = player.plane();
+        int chunk = area.getChunkAt((plane.getX1() + plane.getX2()) / 2, (plane.getY1() + plane.getY2()) / 2);
 
-            MapArea area = map.getMapArea(player.getMapArea());
-            area.lock();
+        if (chunk != player.getChunk()) {
+            player.setChunk(chunk);
 
-            // attempt to move the player
-            MoveAction action = area.movePlayer(player);
-            switch (action.getAction()) {
-                // the movement was successful - schedule his next movement
-                case MOVED:
-                    scheduleWithDelay(() -> onMovePlayer(player), settings.getPlayerWalkDelay());
-                    break;
+            int radius = settings.getAreaChunkRadius();
+            int[] nearby = player.getNearbyChunks((2 * radius + 1) * (2 * radius + 1));
+            int count = area.getChunksAround(chunk, radius, nearby);
 
-                // the player has reached a door - transport him to a new map area
-                case RELOCATE_TO_DOOR:
-                    onRelocatePlayer(player, area, action.getDoor());
-                    break;
+            BitSet loaded = player.getLoadedChunks();
+            for (int i = 0; i < count; i++) {
+                int c = nearby[i];
 
-                // the player has collided with something - stop moving him immediately
-                case COLLISION:
-                    onStopPlayerInArea(player, area);
-                    break;
+                if (!loaded.get(c)) {
+                    loaded.set(c);
+                    player.send(area.getEncodedChunk(c, encoder));
+                }
             }
+        }
+    }
+
+    /**
+     * Encodes a message so that it can be sent to multiple players without being serialized again.
+     *
+     * @param message The message to encode.
+     * @return The encoded message.
+     */
+    private String encode(AbstractResponse message) {
+        try {
+            return mapper.writeValueAsString(message);
+        }
+
+        catch (JsonProcessingException ex) {
+            throw new IllegalStateException(String.format("Failed to encode %s message", message.getHeader()), ex);
+        }
+    }
+
+    /**
+     * Scheduled task for moving a player to another position.
+     *
+     * @param player The moving player.
+     */
+    private void onMovePlayer(Player player) {
+        MapArea area = lockPlayerArea(player);
 
+        // the player might have been stopped while we waited for the lock, and spectators were told about it then
+        if (!player.isMoving()) {
             area.unlock();
+            return;
         }
 
-        // otherwise stop moving the player and notify spectators
-        else {
-            onStopPlayer(player);
+        long now = clock.millis();
+        overload.recordLag(now - player.getLastMovement() - settings.getPlayerWalkDelay());
+        player.setLastMovement(now);
+
+        Door relocation = null;
+
+        // attempt to move the player, and if successful, schedule their next movement afterwards
+        MoveAction action = area.movePlayer(player);
+        switch (action.getAction()) {
+            // the movement was successful - stream any tiles he's now close to and schedule his next movement
+            case MOVED:
+                sendChunksTo(player, area);
+                scheduleNextMove(player, area);
+                break;
+
+            // the player has reached a door - transport him to a new map area
+            case RELOCATE_TO_DOOR:
+                relocation = action.getDoor();
+                break;
+
+            // the player has collided with something - stop moving him immediately
+            case COLLISION:
+                onStopPlayerInArea(player, area);
+                break;
+        }
+
+        area.unlock();
+
+        // areas have to be locked in order of their ID numbers, so relocate the player only after letting go
+        if (relocation != null) {
+            onRelocatePlayer(player, relocation);
         }
     }
 
     /**
      * Reassigns a player from one map area to another.
      *
-     * It is assumed that the source {@link MapArea} is locked before this method is invoked.
+     * Both areas are locked together in a consistent order, so players passing through doors between the same two
+     * areas in opposite directions cannot deadlock. No area may be locked before this method is invoked.
      *
      * @param player The player to relocate.
-     * @param srcArea The area in which the player is currently.
      * @param door The door that the player triggered.
      */
-    private void onRelocatePlayer(Player player, MapArea srcArea, Door door) {
-        MapArea dstArea = map.getMapArea(door.getToAreaId());
+    private void onRelocatePlayer(Player player, Door door) {
+        MapArea[] areas = map.lockMapAreas(player.getMapArea(), door.getToAreaId());
+        MapArea srcArea = areas[0];
+        MapArea dstArea = areas[1];
+
+        // the player might have been removed from the game while their area was not locked
+        if (!srcArea.hasPlayer(player)) {
+            LOG.debug("Player {} left the game before they could be relocated", player.getId());
+        }
 
         // if the area doesn't exist for any reason, stop the player's movement
-        if (dstArea == null) {
+        else if (dstArea == null) {
             LOG.error("Cannot find target area ID {} for door {} to relocate player", door.getId(), door.getToAreaId());
             onStopPlayerInArea(player, srcArea);
         }
 
         else {
-            dstArea.lock();
-
             // remove the player from the source area and move him to the destination area
             srcArea.removePlayer(player);
             dstArea.addPlayer(player);
@@ -312,13 +836,16 @@ public class GameService implements ApplicationListener<SessionDisconnectEvent>
 
             // notify spectators in both areas
             srcArea.sendToAll(new EntityDisappearResponse(player.getId()), player);
-            srcArea.sendToAll(new EntityAppearResponse(createPlayerInfo(player)), player);
+            dstArea.sendToAll(new EntityAppearResponse(createPlayerInfo(player)), player);
 
             // send the moving player a map update for the new area
             sendMapInfoTo(player, dstArea);
 
-            dstArea.unlock();
+            persistence.markDirtyAndFlush(player);
+            snapshots.recordTransition(player);
         }
+
+        map.unlockMapAreas(areas);
     }
 
     /**
@@ -327,11 +854,13 @@ public class GameService implements ApplicationListener<SessionDisconnectEvent>
      * @param player The player to stop moving.
      */
     private void onStopPlayer(Player player) {
-        // notify spectators that this player is no longer moving
-        MapArea area = map.getMapArea(player.getMapArea());
+        MapArea area = lockPlayerArea(player);
+
+        // notify spectators that this player is no longer moving, unless someone else already did
+        if (player.isMoving()) {
+            onStopPlayerInArea(player, area);
+        }
 
-        area.lock();
-        onStopPlayerInArea(player, area);
         area.unlock();
     }
 
@@ -345,16 +874,62 @@ public class GameService implements ApplicationListener<SessionDisconnectEvent>
      */
     private void onStopPlayerInArea(Player player, MapArea area) {
         player.setMoving(false);
+        player.cancelNextMove();
+        persistence.markDirty(player);
+
         area.sendToAll(new EntityMoveStopResponse(player.getId(), player.plane().getX1(), player.plane().getY1()));
     }
 
     /**
-     * Convenience method to schedule a task that will be executed after some milliseconds.
+     * Locks the map area that a player is in.
+     *
+     * Since players can be relocated to another area at any time, the player's area is checked again once its lock
+     * has been acquired, and the lookup is retried if the player moved in the meantime.
      *
-     * @param task The task to schedule.
-     * @param delayMs The delay before executing the task.
+     * @param player The player.
+     * @return The locked {@link MapArea} that the player is in.
      */
-    private void scheduleWithDelay(Runnable task, long delayMs) {
-        scheduler.schedule(task, Date.from(Instant.now().plus(delayMs, ChronoUnit.MILLIS)));
+    private MapArea lockPlayerArea(Player player) {
+        while (true) {
+            int areaId = player.getMapArea();
+            MapArea area = map.lockMapArea(areaId);
+
+            if (player.getMapArea() == areaId) {
+                return area;
+            }
+
+            area.unlock();
+        }
+    }
+
+    /**
+     * Sets a player's movement timer to take their next step once the walk delay has passed.
+     *
+     * All steps taken in the same map area run in order on the same thread.
+     *
+     * @param player The moving player.
+     * @param area The map area that the player is walking in.
+     */
+    private void scheduleNextMove(Player player, MapArea area) {
+        player.getMoveTimer().schedule(settings.getPlayerWalkDelay(), area.getId());
+    }
+
+    /**
+     * A player whose connection dropped, who can still resume their session for a while.
+     */
+    private static class ParkedPlayer {
+
+        private final Player player;
+        private final MapArea area;
+        private final long expiresAt;
+
+        // removes the player once their grace period ends
+        private ScheduledTask expiry;
+
+        ParkedPlayer(Player player, MapArea area, long expiresAt) {
+            this.player = player;
+            this.area = area;
+            this.expiresAt = expiresAt;
+        }
     }
 }
@@ -0,0 +1,142 @@
+package com.mbpolan.retrorealms.services;
+
+import com.mbpolan.retrorealms.beans.requests.AbstractRequest;
+import com.mbpolan.retrorealms.beans.requests.MoveStartRequest;
+import com.mbpolan.retrorealms.beans.requests.RequestHeader;
+import com.mbpolan.retrorealms.services.clock.GameClock;
+import com.mbpolan.retrorealms.services.replay.InputLogWriter;
+import com.mbpolan.retrorealms.services.replay.InputRecord;
+import com.mbpolan.retrorealms.settings.RecordingSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Service that records inputs from players to a log, so that they can be replayed against the server later.
+ *
+ * Recording is disabled by default. Passwords are never recorded; logins are replayed by username only. Logins and
+ * resumed sessions are recorded by the game once they succeed, so that rejected attempts are not replayed as if they
+ * had been let in.
+ *
+ * @author mbpolan
+ */
+@Service
+public class InputRecorder implements ApplicationListener<SessionDisconnectEvent> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InputRecorder.class);
+
+    @Autowired
+    private SettingsService settings;
+
+    @Autowired
+    private GameClock clock;
+
+    private InputLogWriter writer;
+
+    @PostConstruct
+    public void init() throws IOException {
+        RecordingSettings recording = settings.getRecordingSettings();
+
+        if (recording.isEnabled()) {
+            this.writer = new InputLogWriter(Paths.get(recording.getFile()), recording.getSegmentSize());
+            LOG.info("Recording player inputs to {}", recording.getFile());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    /**
+     * Records a request that was received from a player.
+     *
+     * Only movement requests are recorded here; see {@link #recordLogin(String, String)} and
+     * {@link #recordResume(String, String)}.
+     *
+     * @param sessionId The player's websocket session ID.
+     * @param request The request.
+     */
+    public void record(String sessionId, AbstractRequest request) {
+        if (writer == null) {
+            return;
+        }
+
+        switch (request.getHeader()) {
+            case RequestHeader.MOVE_START:
+                append(InputRecord.Type.MOVE_START, sessionId, ((MoveStartRequest) request).getDir());
+                break;
+
+            case RequestHeader.MOVE_STOP:
+                append(InputRecord.Type.MOVE_STOP, sessionId, null);
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Records that a player has logged in to the game.
+     *
+     * @param sessionId The player's websocket session ID.
+     * @param username The player's username.
+     */
+    public void recordLogin(String sessionId, String username) {
+        if (writer != null) {
+            append(InputRecord.Type.LOGIN, sessionId, username);
+        }
+    }
+
+    /**
+     * Records that a player has resumed their session after their connection dropped.
+     *
+     * @param sessionId The player's new websocket session ID.
+     * @param username The player's username.
+     */
+    public void recordResume(String sessionId, String username) {
+        if (writer != null) {
+            append(InputRecord.Type.RESUME, sessionId, username);
+        }
+    }
+
+    /**
+     * Handler invoked when a web socket session has terminated.
+     *
+     * @param event The application event.
+     */
+    @Override
+    public void onApplicationEvent(SessionDisconnectEvent event) {
+        if (writer != null) {
+            append(InputRecord.Type.DISCONNECT, StompHeaderAccessor.wrap(event.getMessage()).getSessionId(), null);
+        }
+    }
+
+    /**
+     * Appends an input to the log.
+     *
+     * @param type The kind of input.
+     * @param sessionId The player's websocket session ID.
+     * @param argument The input's argument, if any.
+     */
+    private void append(InputRecord.Type type, String sessionId, String argument) {
+        try {
+            writer.append(new InputRecord(clock.millis(), type, sessionId, argument));
+        }
+
+        catch (IOException ex) {
+            LOG.error("Failed to record input from session {}", sessionId, ex);
+        }
+    }
+}
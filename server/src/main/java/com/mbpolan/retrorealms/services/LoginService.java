@@ -0,0 +1,201 @@
+package com.mbpolan.retrorealms.services;
+
+import com.mbpolan.retrorealms.beans.responses.data.LoginResult;
+import com.mbpolan.retrorealms.repositories.entities.UserAccount;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.Ordered;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service that processes login requests on a dedicated pool of worker threads.
+ *
+ * Authenticating a user requires a database query, so logins are taken off the threads that handle inbound messages
+ * to keep other players' requests responsive. The number of logins that may wait for a worker is bounded, and any
+ * requests beyond that are turned away immediately.
+ *
+ * When virtual threads are in use, each login runs on a thread of its own instead, and the same bound applies to the
+ * number of logins in progress.
+ *
+ * @author mbpolan
+ */
+@Service
+public class LoginService implements ApplicationListener<SessionDisconnectEvent>, Ordered {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoginService.class);
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private SettingsService settings;
+
+    @Autowired
+    private OverloadService overload;
+
+    @Autowired
+    private ThreadService threads;
+
+    // session IDs of all logins that have been accepted but not yet completed
+    private Set<String> pending;
+
+    private ExecutorService loginExecutor;
+
+    // bounds the number of logins in progress when each one runs on a virtual thread of its own
+    private Semaphore admissions;
+
+    @PostConstruct
+    public void init() {
+        this.pending = ConcurrentHashMap.newKeySet();
+
+        int workers = settings.getLoginWorkers();
+
+        // on virtual threads, logins wait on the database instead of on a worker, so only their number is bounded
+        if (threads.isVirtual()) {
+            this.loginExecutor = threads.createThreadPerTaskExecutor("login-");
+            this.admissions = new Semaphore(workers + settings.getLoginQueueSize());
+        }
+
+        else {
+            this.loginExecutor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(settings.getLoginQueueSize()), threads.createThreadFactory("login-"));
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        this.loginExecutor.shutdownNow();
+    }
+
+    /**
+     * Submits a login request to be processed.
+     *
+     * If too many logins are already waiting to be processed, or the server is too far behind to admit more players,
+     * the player is told that the server is busy.
+     *
+     * @param sessionId The player's websocket session ID.
+     * @param username The username.
+     * @param password The password.
+     */
+    public void login(String sessionId, String username, String password) {
+        // players already in the game come first when the server is overloaded
+        if (!overload.isAcceptingLogins()) {
+            LOG.warn("Server is overloaded, turning away session {}", sessionId);
+
+            gameService.rejectPlayer(sessionId, LoginResult.SERVER_BUSY);
+            return;
+        }
+
+        if (!pending.add(sessionId)) {
+            LOG.warn("Ignoring duplicate login request for session {}", sessionId);
+            return;
+        }
+
+        try {
+            if (admissions != null && !admissions.tryAcquire()) {
+                throw new RejectedExecutionException("Too many logins in progress");
+            }
+
+            loginExecutor.execute(() -> {
+                try {
+                    processLogin(sessionId, username, password);
+                }
+
+                finally {
+                    if (admissions != null) {
+                        admissions.release();
+                    }
+                }
+            });
+        }
+
+        catch (RejectedExecutionException ex) {
+            LOG.warn("Login queue is full, turning away session {}", sessionId);
+
+            pending.remove(sessionId);
+            gameService.rejectPlayer(sessionId, LoginResult.SERVER_BUSY);
+        }
+    }
+
+    /**
+     * Handler invoked when a web socket session has terminated.
+     *
+     * Any login for the session that has not yet completed is abandoned.
+     *
+     * @param event The application event.
+     */
+    @Override
+    public void onApplicationEvent(SessionDisconnectEvent event) {
+        String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
+
+        synchronized (this) {
+            pending.remove(sessionId);
+        }
+    }
+
+    /**
+     * Returns the order of this listener, which must run before the {@link GameService} handles a disconnect.
+     *
+     * @return The order of this listener.
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    /**
+     * Authenticates a user and adds them to the game.
+     *
+     * @param sessionId The player's websocket session ID.
+     * @param username The username.
+     * @param password The password.
+     */
+    private void processLogin(String sessionId, String username, String password) {
+        UserAccount account;
+
+        try {
+            account = authService.authenticate(username, password);
+        }
+
+        catch (RuntimeException ex) {
+            LOG.error("Failed to authenticate user {}", username, ex);
+
+            pending.remove(sessionId);
+            gameService.rejectPlayer(sessionId, LoginResult.SERVER_ERROR);
+            return;
+        }
+
+        // join the player to the game, unless their session has ended while we were busy
+        synchronized (this) {
+            if (!pending.remove(sessionId)) {
+                LOG.debug("Session {} disconnected before login completed", sessionId);
+            }
+
+            else if (account != null) {
+                gameService.addPlayer(sessionId, account);
+            }
+
+            else {
+                gameService.rejectPlayer(sessionId, LoginResult.INVALID_LOGIN);
+            }
+        }
+    }
+}
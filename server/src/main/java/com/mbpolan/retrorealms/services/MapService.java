@@ -1,7 +1,10 @@
 package com.mbpolan.retrorealms.services;
 
+import com.mbpolan.retrorealms.services.beans.LockStats;
 import com.mbpolan.retrorealms.services.beans.MapArea;
+import com.mbpolan.retrorealms.services.beans.Player;
 import com.mbpolan.retrorealms.services.beans.Rectangle;
+import com.mbpolan.retrorealms.services.clock.GameClock;
 import com.mbpolan.retrorealms.services.map.*;
 import com.mbpolan.retrorealms.settings.MapSettings;
 import org.slf4j.Logger;
@@ -10,12 +13,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -34,11 +49,244 @@ public class MapService {
     @Autowired
     private SettingsService settings;
 
+    @Autowired
+    private GameClock clock;
+
+    // map areas that have been materialized so far
     private Map<Integer, MapArea> areas;
-    private GameMap map;
+
+    // statistics about how each map area is locked, if lock profiling is enabled
+    private Map<Integer, LockStats> lockStats;
+
+    // the map data that areas are currently materialized from
+    private volatile World world;
+
+    private ExecutorService reloadExecutor;
 
     @PostConstruct
     public void init() throws IOException {
+        this.areas = new ConcurrentHashMap<>();
+        this.lockStats = new ConcurrentHashMap<>();
+        this.reloadExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "map-reload"));
+
+        // generate the world based on the data we loaded from the map
+        this.world = generateWorld(loadMap());
+
+        // sweep for idle areas often enough that none stays awake much longer than the idle timeout
+        clock.scheduleWithFixedDelay(this::hibernateIdleAreas, Math.max(1, settings.getAreaIdleTimeout() / 4));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        this.reloadExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns metadata about all tilesets that are in use on the map.
+     *
+     * @return Metadata about tilesets.
+     */
+    public List<TilesetMetadata> getTilesets() {
+        return this.world.map.getTileIndex().getTilesets();
+    }
+
+    /**
+     * Returns statistics about how each map area has been locked, keyed by area ID numbers.
+     *
+     * Statistics are only recorded when lock profiling is enabled.
+     *
+     * @return An immutable map of lock statistics.
+     */
+    public Map<Integer, LockStats> getLockStats() {
+        return Collections.unmodifiableMap(lockStats);
+    }
+
+    /**
+     * Returns descriptors for each area of the map that has been materialized so far.
+     *
+     * @return An immutable collection of {@link MapArea} beans.
+     */
+    public Collection<MapArea> getMapAreas() {
+        return Collections.unmodifiableCollection(this.areas.values());
+    }
+
+    /**
+     * Returns descriptors for each area of the map that currently has players in it.
+     *
+     * @return A list of {@link MapArea} beans.
+     */
+    public List<MapArea> getOccupiedMapAreas() {
+        return this.areas.values().stream()
+                .filter(a -> !a.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns a description of an area of the map.
+     *
+     * If the area has not yet been used, it will be materialized from the loaded map data.
+     *
+     * @param area The ID number of the area.
+     * @return A {@link MapArea} bean, or null if no such area exists.
+     */
+    public MapArea getMapArea(int area) {
+        // most areas are materialized already, which can be looked up without any coordination
+        MapArea mapArea = this.areas.get(area);
+
+        return mapArea != null ? mapArea : materializeMapArea(area);
+    }
+
+    /**
+     * Returns a description of an area of the map, and locks it.
+     *
+     * Map areas may be replaced while the map is being reloaded, so callers that intend to mutate an area should
+     * use this method instead of locking the area returned by {@link #getMapArea(int)} themselves.
+     *
+     * @param area The ID number of the area.
+     * @return A locked {@link MapArea} bean, or null if no such area exists.
+     */
+    public MapArea lockMapArea(int area) {
+        while (true) {
+            MapArea mapArea = getMapArea(area);
+            if (mapArea == null) {
+                return null;
+            }
+
+            mapArea.lock();
+
+            // the area might have been replaced while we waited for the lock
+            if (!mapArea.isRetired()) {
+                return mapArea;
+            }
+
+            mapArea.unlock();
+        }
+    }
+
+    /**
+     * Returns descriptions of two areas of the map, and locks them both.
+     *
+     * Areas are always locked in order of their ID numbers, regardless of the order they are requested in, so that
+     * two threads locking the same pair of areas can never deadlock. If both ID numbers refer to the same area, it
+     * is only locked once. The areas should be released with {@link #unlockMapAreas(MapArea...)}.
+     *
+     * @param first The ID number of the first area.
+     * @param second The ID number of the second area.
+     * @return The locked {@link MapArea} beans in the order they were requested, with null for an area that does
+     *         not exist.
+     */
+    public MapArea[] lockMapAreas(int first, int second) {
+        if (first == second) {
+            MapArea area = lockMapArea(first);
+            return new MapArea[]{ area, area };
+        }
+
+        int low = Math.min(first, second);
+        int high = Math.max(first, second);
+
+        while (true) {
+            MapArea lowArea = getMapArea(low);
+            MapArea highArea = getMapArea(high);
+
+            if (lowArea != null) {
+                lowArea.lock();
+            }
+
+            if (highArea != null) {
+                highArea.lock();
+            }
+
+            // either area might have been replaced while we waited for the locks
+            if ((lowArea == null || !lowArea.isRetired()) && (highArea == null || !highArea.isRetired())) {
+                return first == low ? new MapArea[]{ lowArea, highArea } : new MapArea[]{ highArea, lowArea };
+            }
+
+            unlockMapAreas(lowArea, highArea);
+        }
+    }
+
+    /**
+     * Unlocks map areas that were locked with {@link #lockMapAreas(int, int)}.
+     *
+     * @param areas The locked areas; null entries and repeated areas are skipped.
+     */
+    public void unlockMapAreas(MapArea... areas) {
+        for (int i = areas.length - 1; i >= 0; i--) {
+            MapArea area = areas[i];
+
+            if (area != null && (i == 0 || area != areas[i - 1])) {
+                area.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the square size of a tile.
+     *
+     * @return The size of a single tile, in pixels.
+     */
+    public int getTileSize() {
+        return this.world.map.getTileSize();
+    }
+
+    /**
+     * Scheduled task that hibernates map areas that have been empty for too long.
+     */
+    private void hibernateIdleAreas() {
+        long now = clock.millis();
+        long idleTimeout = settings.getAreaIdleTimeout();
+
+        this.areas.values().stream()
+                .filter(a -> a.isIdle(now, idleTimeout))
+                .forEach(a -> {
+                    a.lock();
+
+                    // a player might have entered the area in the meantime
+                    if (a.isIdle(now, idleTimeout)) {
+                        a.hibernate();
+                        LOG.debug("Hibernated idle map area {}", a.getId());
+                    }
+
+                    a.unlock();
+                });
+    }
+
+    /**
+     * Reloads the map file in the background and replaces any map areas whose contents have changed.
+     *
+     * Players in a replaced area are migrated to its replacement. The callback is invoked for each replaced
+     * area while it is still locked, before any other thread can observe it.
+     *
+     * @param onReplaced Callback invoked for each map area that was replaced.
+     * @return A future that completes with the ID numbers of all changed areas.
+     */
+    public CompletableFuture<List<Integer>> reload(Consumer<MapArea> onReplaced) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.currentTimeMillis();
+
+            try {
+                World next = generateWorld(loadMap());
+                List<Integer> changed = swapWorld(next, onReplaced);
+
+                LOG.info("Reloaded map in {} ms with {} changed areas", System.currentTimeMillis() - start,
+                        changed.size());
+
+                return changed;
+            }
+
+            catch (IOException ex) {
+                throw new CompletionException(ex);
+            }
+        }, reloadExecutor);
+    }
+
+    /**
+     * Loads the configured map file.
+     *
+     * @return The parsed {@link GameMap}.
+     * @throws IOException If the map cannot be loaded.
+     */
+    private GameMap loadMap() throws IOException {
         MapSettings mapSettings = settings.getMapSettings();
 
         // make sure the map file exists
@@ -55,106 +303,322 @@ public class MapService {
 
         // load the map data
         TmxMapLoader loader = new TmxMapLoader(DATA_DIR);
-        this.map = loader.load(new FileInputStream(mapPath.toFile()));
+        try (InputStream in = new FileInputStream(mapPath.toFile())) {
+            GameMap map = loader.load(in);
 
-        LOG.info("Successfully parsed map data");
+            LOG.info("Successfully parsed map data");
+            return map;
+        }
+    }
 
-        // generate the world based on the data we loaded from the map
-        generateWorld();
+    /**
+     * Indexes the various map areas and other constructs for the game world.
+     *
+     * Map areas themselves are not created until a player first enters them.
+     *
+     * @param map The map data to index.
+     * @return The indexed {@link World}.
+     */
+    private World generateWorld(GameMap map) {
+        World world = new World();
+        world.map = map;
+        world.definitions = map.getAreas().stream()
+                .collect(Collectors.toMap(Area::getId, a -> a));
+        world.tilesetHash = hashTilesets(map.getTileIndex().getTilesets());
+        world.hashes = map.getAreas().stream()
+                .collect(Collectors.toMap(Area::getId, a -> hashArea(map, a)));
+
+        LOG.info("World indexed with {} map areas", world.definitions.size());
+        return world;
     }
 
     /**
-     * Returns metadata about all tiles that are in use on the map.
+     * Replaces the current world with another, swapping out materialized areas whose contents differ.
      *
-     * @return Metadata about tiles.
+     * Newly materialized areas are added under the same monitor, so none can be added from the old world after
+     * the swap.
+     *
+     * @param next The world to switch to.
+     * @param onReplaced Callback invoked for each map area that was replaced.
+     * @return The ID numbers of all areas that changed.
+     * @throws IOException If the new world is not compatible with the current one.
      */
-    public TilesetMetadata getTilesetMetadata() {
-        return this.map.getTileMetadata();
+    private synchronized List<Integer> swapWorld(World next, Consumer<MapArea> onReplaced) throws IOException {
+        World current = this.world;
+
+        // clients only fetch the tilesets once, so we cannot change them from under them
+        if (!Arrays.equals(current.tilesetHash, next.tilesetHash)) {
+            throw new IOException("Tileset changes require a server restart");
+        }
+
+        // find the areas whose contents have changed
+        List<Integer> changed = current.hashes.entrySet().stream()
+                .filter(e -> !Arrays.equals(e.getValue(), next.hashes.get(e.getKey())))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+
+        next.hashes.keySet().stream()
+                .filter(id -> !current.hashes.containsKey(id))
+                .forEach(changed::add);
+
+        // lock every materialized area that is about to change, in order of their ID numbers like any other
+        // thread that locks more than one area, so that no player can enter them while they are swapped out
+        List<MapArea> previous = changed.stream()
+                .sorted()
+                .map(areas::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        previous.forEach(MapArea::lock);
+        List<MapArea> replacements = new ArrayList<>();
+
+        try {
+            // we can't remove an area out from under players that are still in it
+            for (MapArea area : previous) {
+                if (!area.isEmpty() && !next.definitions.containsKey(area.getId())) {
+                    throw new IOException(String.format("Cannot remove map area %d while players are in it",
+                            area.getId()));
+                }
+            }
+
+            // areas materialized from now on will use the new map data
+            this.world = next;
+
+            for (MapArea area : previous) {
+                int id = area.getId();
+
+                // removed areas are simply dropped, while changed areas are replaced and have their players migrated
+                Area definition = next.definitions.get(id);
+                if (definition == null) {
+                    areas.remove(id);
+                }
+
+                else {
+                    MapArea replacement = createMapArea(next, definition);
+                    replacement.lock();
+                    replacements.add(replacement);
+
+                    List<Player> players = new ArrayList<>(area.getPlayers());
+                    players.forEach(p -> {
+                        area.removePlayer(p);
+                        replacement.addPlayer(p);
+                    });
+
+                    areas.put(id, replacement);
+                    LOG.info("Replaced map area {} and migrated {} players", id, players.size());
+                }
+
+                area.retire();
+            }
+
+            // replacements stay locked until their players have been told about them
+            replacements.forEach(onReplaced);
+        }
+
+        finally {
+            replacements.forEach(MapArea::unlock);
+            previous.forEach(MapArea::unlock);
+        }
+
+        return changed;
     }
 
     /**
-     * Returns descriptors for each area of the map.
+     * Creates a map area from the current map data and adds it to the materialized areas.
+     *
+     * The area is built without holding any locks, since that takes a while for large areas. It is only added if
+     * the map was not reloaded in the meantime, otherwise it is built again from the new map data.
      *
-     * @return An immutable list of {@link MapArea} beans.
+     * @param id The ID number of the area.
+     * @return The materialized {@link MapArea}, or null if no such area is defined.
      */
-    public Collection<MapArea> getMapAreas() {
-        return this.areas.values();
+    private MapArea materializeMapArea(int id) {
+        while (true) {
+            World world = this.world;
+
+            Area a = world.definitions.get(id);
+            if (a == null) {
+                return null;
+            }
+
+            MapArea created = createMapArea(world, a);
+
+            // worlds are only swapped while holding the monitor, so an area added under it can never be stale
+            synchronized (this) {
+                if (this.world == world) {
+                    MapArea existing = this.areas.putIfAbsent(id, created);
+                    return existing != null ? existing : created;
+                }
+            }
+
+            LOG.debug("Map was reloaded while materializing area {}, materializing it again", id);
+        }
     }
 
     /**
-     * Returns a description of an area of the map.
+     * Creates a map area from loaded map data.
      *
-     * @param area The ID number of the area.
-     * @return A {@link MapArea} bean.
+     * @param world The world containing the map data.
+     * @param a The definition of the area.
+     * @return A hibernating {@link MapArea}.
      */
-    public MapArea getMapArea(int area) {
-        return this.areas.get(area);
+    private MapArea createMapArea(World world, Area a) {
+        GameMap map = world.map;
+        long start = System.currentTimeMillis();
+
+        // based on the areas that are defined, we need to partition the entire rectangle of tiles that make up the
+        // map into individual areas
+        Rectangle bounds = a.getBounds();
+        List<Layer> areaLayers = new ArrayList<>();
+
+        // compute the tiles that belong to this map area
+        map.getLayers().forEach(l -> {
+            List<List<Tile>> tiles = new ArrayList<>();
+
+            for (int y = 0; y < map.getHeight(); y++) {
+
+                // does this row fall into the area occupied by this area?
+                if (y >= bounds.getY1() && y <= bounds.getY2()) {
+                    List<Tile> row = new ArrayList<>();
+
+                    for (int x = 0; x < map.getWidth(); x++) {
+                        // does this column fall into the area occupied by this area?
+                        if (x >= bounds.getX1() && x <= bounds.getX2()) {
+                            row.add(l.getTiles().get(y).get(x));
+                        }
+                    }
+
+                    tiles.add(row);
+                }
+            }
+
+            areaLayers.add(new Layer(tiles));
+        });
+
+        // find all doors that belong to this area
+        List<Door> areaDoors = findDoors(map, a);
+
+        // compute the dimensions of the area
+        int areaWidth = bounds.getX2() - bounds.getX1() + 1;
+        int areaHeight = bounds.getY2() - bounds.getY1() + 1;
+
+        LOG.debug("Materialized map area {} over ({},{} -> {},{}) {}x{} with {} doors in {} ms",
+                a.getId(), bounds.getX1(), bounds.getY1(), bounds.getX2(), bounds.getY2(),
+                areaWidth, areaHeight, areaDoors.size(), System.currentTimeMillis() - start);
+
+        MapArea area = new MapArea(a.getId(), areaWidth, areaHeight, map.getTileSize(), settings.getAreaChunkSize(),
+                areaLayers, areaDoors, clock);
+
+        // statistics are kept across reloads, since replaced areas still guard the same part of the map
+        if (settings.isLockProfilingEnabled()) {
+            area.setLockStats(lockStats.computeIfAbsent(a.getId(), id -> new LockStats(
+                    String.format("map area %d", id), settings.getLockSlowHoldThreshold())));
+        }
+
+        return area;
     }
 
     /**
-     * Returns the square size of a tile.
+     * Finds all doors that are located in an area.
      *
-     * @return The size of a single tile, in pixels.
+     * @param map The map data.
+     * @param a The area.
+     * @return A list of {@link Door}s in the area.
      */
-    public int getTileSize() {
-        return this.map.getTileSize();
+    private static List<Door> findDoors(GameMap map, Area a) {
+        return map.getDoors().stream()
+                .filter(d -> d.getSrcAreaId() == a.getId())
+                .collect(Collectors.toList());
     }
 
     /**
-     * Generates the various map areas and other constructs for the game world.
+     * Computes a digest of everything that makes up the contents of a map area.
+     *
+     * @param map The map data.
+     * @param a The area.
+     * @return The digest of the area.
      */
-    private void generateWorld() {
-        this.areas = new HashMap<>();
+    private static byte[] hashArea(GameMap map, Area a) {
+        MessageDigest digest = createDigest();
+        Rectangle bounds = a.getBounds();
 
-        LOG.info("Generating world...");
-        long start = System.currentTimeMillis();
+        updateDigest(digest, bounds);
 
-        // based on the areas that are defined, we need to partition the entire rectangle of tiles that make up the
-        // map into individual areas
-        map.getAreas().forEach(a -> {
-            Rectangle bounds = a.getBounds();
-            List<Layer> areaLayers = new ArrayList<>();
+        // tiles in each layer that fall into this area
+        for (Layer l : map.getLayers()) {
+            for (int y = bounds.getY1(); y <= bounds.getY2(); y++) {
+                List<Tile> row = l.getTiles().get(y);
 
-            // compute the tiles that belong to this map area
-            map.getLayers().forEach(l -> {
-                List<List<Tile>> tiles = new ArrayList<>();
+                for (int x = bounds.getX1(); x <= bounds.getX2(); x++) {
+                    Tile tile = row.get(x);
+                    updateDigest(digest, tile == null ? 0 : tile.getId());
+                }
+            }
+        }
 
-                for (int y = 0; y < map.getHeight(); y++) {
+        // doors that lead out of this area
+        for (Door d : findDoors(map, a)) {
+            updateDigest(digest, d.getId(), d.getToAreaId(), d.getToX(), d.getToY());
+            updateDigest(digest, d.getBounds());
+        }
 
-                    // does this row fall into the area occupied by this area?
-                    if (y >= bounds.getY1() && y <= bounds.getY2()) {
-                        List<Tile> row = new ArrayList<>();
+        return digest.digest();
+    }
 
-                        for (int x = 0; x < map.getWidth(); x++) {
-                            // does this column fall into the area occupied by this area?
-                            if (x >= bounds.getX1() && x <= bounds.getX2()) {
-                                row.add(l.getTiles().get(y).get(x));
-                            }
-                        }
+    /**
+     * Computes a digest of the metadata for all tilesets.
+     *
+     * @param tilesets The tileset metadata.
+     * @return The digest of the tilesets.
+     */
+    private static byte[] hashTilesets(List<TilesetMetadata> tilesets) {
+        MessageDigest digest = createDigest();
 
-                        tiles.add(row);
-                    }
-                }
+        for (TilesetMetadata tileset : tilesets) {
+            digest.update(tileset.getName().getBytes(StandardCharsets.UTF_8));
+            digest.update(tileset.getImageSourcePath().getBytes(StandardCharsets.UTF_8));
+
+            for (Tile tile : tileset.getTiles()) {
+                updateDigest(digest, tile.getId());
+                updateDigest(digest, tile.getFrame());
+                tile.getBoundingBoxes().forEach(b -> updateDigest(digest, b));
+            }
+        }
 
-                areaLayers.add(new Layer(tiles));
-            });
+        return digest.digest();
+    }
 
-            // find all doors that belong to this area
-            List<Door> areaDoors = map.getDoors().stream()
-                    .filter(d -> d.getSrcAreaId() == a.getId())
-                    .collect(Collectors.toList());
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
 
-            // compute the dimensions of the area and add it to the world
-            int areaWidth = bounds.getX2() - bounds.getX1() + 1;
-            int areaHeight = bounds.getY2() - bounds.getY1() + 1;
+        catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", ex);
+        }
+    }
 
-            LOG.debug("Added map area {} over ({},{} -> {},{}) {}x{} with {} doors",
-                    a.getId(), bounds.getX1(), bounds.getY1(), bounds.getX2(), bounds.getY2(),
-                    areaWidth, areaHeight, areaDoors.size());
+    private static void updateDigest(MessageDigest digest, Rectangle rect) {
+        updateDigest(digest, rect.getX1(), rect.getY1(), rect.getX2(), rect.getY2());
+    }
 
-            areas.put(a.getId(), new MapArea(areaWidth, areaHeight, map.getTileSize(), areaLayers, areaDoors));
-        });
+    private static void updateDigest(MessageDigest digest, int... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * Integer.BYTES);
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+
+        digest.update(buffer.array());
+    }
+
+    /**
+     * Map data that map areas are materialized from, along with digests of each area's contents.
+     */
+    private static class World {
 
-        LOG.info("World generated in {} ms", System.currentTimeMillis() - start);
+        GameMap map;
+        Map<Integer, Area> definitions;
+        Map<Integer, byte[]> hashes;
+        byte[] tilesetHash;
     }
 }
@@ -0,0 +1,140 @@
+package com.mbpolan.retrorealms.services;
+
+import com.mbpolan.retrorealms.services.clock.GameClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Service that watches how far behind the server is running, and decides how much load it should shed.
+ *
+ * Scheduled game tasks, such as player movements and game state dispatches, report how late they ran compared to
+ * when they were due. The worst lag seen in each window determines the overload level for the next one: a server
+ * that falls behind first sends game state updates less often, and if that is not enough, it stops admitting new
+ * players until it catches up. A level is only left once the lag drops well below the threshold that caused it, so
+ * that the server does not flap between levels.
+ *
+ * @author mbpolan
+ */
+@Service
+public class OverloadService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OverloadService.class);
+
+    @Autowired
+    private GameClock clock;
+
+    @Autowired
+    private SettingsService settings;
+
+    // worst lag reported since the last evaluation, in milliseconds
+    private LongAccumulator maxLag;
+
+    private volatile Level level;
+
+    @PostConstruct
+    public void init() {
+        this.maxLag = new LongAccumulator(Math::max, 0);
+        this.level = Level.NORMAL;
+
+        clock.scheduleWithFixedDelay(this::evaluate, settings.getOverloadWindow());
+    }
+
+    /**
+     * Reports how late a scheduled game task ran.
+     *
+     * @param lagMs How long after it was due the task ran, in milliseconds.
+     */
+    public void recordLag(long lagMs) {
+        maxLag.accumulate(lagMs);
+    }
+
+    /**
+     * Returns the current overload level.
+     *
+     * @return The overload level.
+     */
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns how many times longer than usual map areas should wait between game state updates.
+     *
+     * @return The factor to stretch dispatch intervals by.
+     */
+    public int getDispatchIntervalFactor() {
+        return level.dispatchIntervalFactor;
+    }
+
+    /**
+     * Returns whether new players may log in.
+     *
+     * @return true if logins are admitted, false if the server is shedding load.
+     */
+    public boolean isAcceptingLogins() {
+        return level != Level.SHEDDING;
+    }
+
+    /**
+     * Scheduled task that updates the overload level from the lag seen since the last evaluation.
+     */
+    private void evaluate() {
+        long lag = maxLag.getThenReset();
+        Level previous = level;
+        Level next;
+
+        // move up as soon as a threshold is crossed, but only move down once the lag is well below it
+        int shedLag = settings.getOverloadShedLag();
+        int degradeLag = settings.getOverloadDegradeLag();
+
+        if (lag >= shedLag || (previous == Level.SHEDDING && lag >= shedLag / 2)) {
+            next = Level.SHEDDING;
+        }
+
+        else if (lag >= degradeLag || (previous != Level.NORMAL && lag >= degradeLag / 2)) {
+            next = Level.DEGRADED;
+        }
+
+        else {
+            next = Level.NORMAL;
+        }
+
+        if (next != previous) {
+            this.level = next;
+
+            if (next.ordinal() > previous.ordinal()) {
+                LOG.warn("Server is running {} ms behind, overload level raised to {}", lag, next);
+            }
+
+            else {
+                LOG.info("Server is running {} ms behind, overload level lowered to {}", lag, next);
+            }
+        }
+    }
+
+    /**
+     * How much load the server is shedding.
+     */
+    public enum Level {
+
+        // the server is keeping up
+        NORMAL(1),
+
+        // game state updates are sent less often
+        DEGRADED(2),
+
+        // game state updates are sent even less often, and new players are turned away
+        SHEDDING(4);
+
+        private final int dispatchIntervalFactor;
+
+        Level(int dispatchIntervalFactor) {
+            this.dispatchIntervalFactor = dispatchIntervalFactor;
+        }
+    }
+}
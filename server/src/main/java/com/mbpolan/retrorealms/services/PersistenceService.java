@@ -0,0 +1,282 @@
+package com.mbpolan.retrorealms.services;
+
+import com.mbpolan.retrorealms.repositories.entities.UserAccount;
+import com.mbpolan.retrorealms.services.beans.Player;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service that writes changes to player state to the database in the background.
+ *
+ * Callers only record that a player's state has changed; the actual writes are batched and performed on a dedicated
+ * thread, so neither the game loop nor inbound message handlers ever wait on the database.
+ *
+ * @author mbpolan
+ */
+@Service
+public class PersistenceService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PersistenceService.class);
+
+    private static final String UPDATE_STATE =
+            "UPDATE USER_ACCOUNT SET MAP_AREA = ?, X = ?, Y = ?, DIRECTION = ? WHERE ID = ?";
+
+    private static final String UPDATE_LAST_LOGIN = "UPDATE USER_ACCOUNT SET LAST_LOGIN = ? WHERE ID = ?";
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private SettingsService settings;
+
+    @Autowired
+    private ThreadService threads;
+
+    // pending changes that have not yet been written, keyed by account IDs
+    private Map<Long, PlayerState> dirtyStates;
+    private Map<Long, Timestamp> dirtyLogins;
+
+    // changes that are currently being written by the flush thread
+    private volatile Map<Long, PlayerState> flushingStates;
+
+    private ScheduledExecutorService flushExecutor;
+
+    @PostConstruct
+    public void init() {
+        this.dirtyStates = new ConcurrentHashMap<>();
+        this.dirtyLogins = new ConcurrentHashMap<>();
+        this.flushingStates = Collections.emptyMap();
+
+        int interval = settings.getPersistenceFlushInterval();
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor(
+                threads.createThreadFactory("player-persistence-"));
+        this.flushExecutor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        // let any flush in progress finish, then write out whatever is left on this thread
+        this.flushExecutor.shutdown();
+        if (!this.flushExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+            LOG.warn("Timed out waiting for player persistence to finish");
+        }
+
+        flush();
+    }
+
+    /**
+     * Records that a player's position or direction has changed.
+     *
+     * The player's state is captured immediately, so it's assumed that the map area the player is in is locked
+     * before this method is invoked. Cached accounts are left alone, since logins apply pending states on top of
+     * them, and they are only evicted once the state has been written.
+     *
+     * @param player The player whose state has changed.
+     */
+    public void markDirty(Player player) {
+        if (player.getAccountId() != null) {
+            dirtyStates.put(player.getAccountId(), new PlayerState(player));
+        }
+    }
+
+    /**
+     * Records that a player's state has changed, and requests that all pending changes be written as soon as
+     * possible.
+     *
+     * @param player The player whose state has changed.
+     * @see #markDirty(Player)
+     */
+    public void markDirtyAndFlush(Player player) {
+        markDirty(player);
+        requestFlush();
+    }
+
+    /**
+     * Records the state of a player that was recovered from outside the database, such as after a crash.
+     *
+     * @param accountId The ID number of the player's user account.
+     * @param username The player's username.
+     * @param mapArea The ID number of the map area the player is in.
+     * @param x The x coordinate of the player.
+     * @param y The y coordinate of the player.
+     * @param direction The direction the player is facing.
+     */
+    public void restoreState(long accountId, String username, int mapArea, int x, int y, String direction) {
+        dirtyStates.put(accountId, new PlayerState(accountId, username, mapArea, x, y, direction));
+        authService.invalidate(username);
+    }
+
+    /**
+     * Records that a user has logged in to the game.
+     *
+     * @param account The user account.
+     */
+    public void recordLogin(UserAccount account) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+
+        account.setLastLogin(now);
+        dirtyLogins.put(account.getId(), now);
+    }
+
+    /**
+     * Applies any changes to a user's state that have not yet been written to the database.
+     *
+     * This should be used when an account is loaded, since a user may log in again before their previous state has
+     * been flushed.
+     *
+     * @param account The user account to update.
+     */
+    public void applyPendingState(UserAccount account) {
+        PlayerState state = dirtyStates.get(account.getId());
+        if (state == null) {
+            state = flushingStates.get(account.getId());
+        }
+
+        if (state != null) {
+            account.setMapArea(state.mapArea);
+            account.setX(state.x);
+            account.setY(state.y);
+            account.setDirection(state.direction);
+        }
+    }
+
+    /**
+     * Schedules pending changes to be written immediately.
+     */
+    private void requestFlush() {
+        try {
+            flushExecutor.execute(this::flush);
+        }
+
+        catch (RejectedExecutionException ex) {
+            // the service is shutting down, and pending changes will be written as part of that
+            LOG.debug("Ignoring flush request during shutdown");
+        }
+    }
+
+    /**
+     * Writes all pending changes to the database in batches, on the calling thread.
+     *
+     * If a batch fails, all drained changes are queued again, unless newer changes for the same account have since
+     * been recorded. Writing the same state twice is harmless.
+     *
+     * @return true if all pending changes were written, false if they remain pending.
+     */
+    public synchronized boolean flush() {
+        Map<Long, PlayerState> states = new HashMap<>(dirtyStates);
+        Map<Long, Timestamp> logins = drain(dirtyLogins);
+
+        if (states.isEmpty() && logins.isEmpty()) {
+            return true;
+        }
+
+        // publish the states being written before they leave the pending map, so that a user logging in meanwhile
+        // always finds their latest state in one of the two; newer states recorded since stay pending
+        this.flushingStates = states;
+        states.forEach(dirtyStates::remove);
+
+        try {
+            if (!states.isEmpty()) {
+                List<Object[]> args = new ArrayList<>(states.size());
+                states.values().forEach(s -> args.add(new Object[]{ s.mapArea, s.x, s.y, s.direction, s.accountId }));
+
+                jdbc.batchUpdate(UPDATE_STATE, args);
+
+                // evict accounts that may have been cached before these changes were written
+                states.values().forEach(s -> authService.invalidate(s.username));
+            }
+
+            if (!logins.isEmpty()) {
+                List<Object[]> args = new ArrayList<>(logins.size());
+                logins.forEach((id, time) -> args.add(new Object[]{ time, id }));
+
+                jdbc.batchUpdate(UPDATE_LAST_LOGIN, args);
+            }
+
+            LOG.debug("Flushed pending player state");
+            return true;
+        }
+
+        catch (RuntimeException ex) {
+            LOG.error("Failed to write player state, will retry", ex);
+
+            states.forEach(dirtyStates::putIfAbsent);
+            logins.forEach(dirtyLogins::putIfAbsent);
+
+            return false;
+        }
+
+        finally {
+            this.flushingStates = Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Removes all entries from a map of pending changes.
+     *
+     * @param pending The map of pending changes.
+     * @return A new map containing the removed entries.
+     */
+    private static <T> Map<Long, T> drain(Map<Long, T> pending) {
+        Map<Long, T> drained = new HashMap<>();
+        for (Long key : pending.keySet()) {
+            T value = pending.remove(key);
+            if (value != null) {
+                drained.put(key, value);
+            }
+        }
+
+        return drained;
+    }
+
+    /**
+     * Snapshot of the persistent state of a player.
+     */
+    private static class PlayerState {
+
+        private final Long accountId;
+        private final String username;
+        private final int mapArea;
+        private final int x;
+        private final int y;
+        private final String direction;
+
+        PlayerState(Player player) {
+            this.accountId = player.getAccountId();
+            this.username = player.getUsername();
+            this.mapArea = player.getMapArea();
+            this.x = player.plane().getX1();
+            this.y = player.plane().getY1();
+            this.direction = player.getDirection().getValue();
+        }
+
+        PlayerState(Long accountId, String username, int mapArea, int x, int y, String direction) {
+            this.accountId = accountId;
+            this.username = username;
+            this.mapArea = mapArea;
+            this.x = x;
+            this.y = y;
+            this.direction = direction;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.mbpolan.retrorealms.services;
 
 import com.mbpolan.retrorealms.beans.info.RectangleInfo;
 import com.mbpolan.retrorealms.beans.info.TileMetadataInfo;
+import com.mbpolan.retrorealms.beans.info.TilesetMetadataInfo;
 import com.mbpolan.retrorealms.services.beans.Rectangle;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -21,35 +22,24 @@ public class ServerInfoService {
     @Autowired
     private MapService map;
 
-    private String tilesetName;
-    private String tilesetSource;
-    private List<TileMetadataInfo> tiles;
+    private List<TilesetMetadataInfo> tilesets;
 
     @PostConstruct
     public void init() {
-        this.tilesetName = map.getTilesetMetadata().getName();
-        this.tilesetSource = map.getTilesetMetadata().getImageSourcePath();
-
-        // store the metadata for tiles in a form external clients will understand
-        this.tiles = map.getTilesetMetadata().getTiles().stream()
-                .map(t -> new TileMetadataInfo(t.getId(),
-                        normalizeRectangle(t.getFrame()),
-                        t.getBoundingBoxes().stream()
-                                .map(ServerInfoService::normalizeRectangle)
-                                .collect(Collectors.toList())))
+        // store the metadata for tilesets in a form external clients will understand
+        this.tilesets = map.getTilesets().stream()
+                .map(ts -> new TilesetMetadataInfo(ts.getName(), ts.getImageSourcePath(), ts.getTiles().stream()
+                        .map(t -> new TileMetadataInfo(t.getId(),
+                                normalizeRectangle(t.getFrame()),
+                                t.getBoundingBoxes().stream()
+                                        .map(ServerInfoService::normalizeRectangle)
+                                        .collect(Collectors.toList())))
+                        .collect(Collectors.toList())))
                 .collect(Collectors.toList());
     }
 
-    public String getTilesetName() {
-        return tilesetName;
-    }
-
-    public String getTilesetSource() {
-        return tilesetSource;
-    }
-
-    public List<TileMetadataInfo> getTiles() {
-        return tiles;
+    public List<TilesetMetadataInfo> getTilesets() {
+        return tilesets;
     }
 
     private static RectangleInfo normalizeRectangle(Rectangle r) {
@@ -1,9 +1,21 @@
 package com.mbpolan.retrorealms.services;
 
+import com.mbpolan.retrorealms.settings.AccountSettings;
+import com.mbpolan.retrorealms.settings.AdminSettings;
+import com.mbpolan.retrorealms.settings.AreaSettings;
 import com.mbpolan.retrorealms.settings.AssetSettings;
+import com.mbpolan.retrorealms.settings.DispatchSettings;
 import com.mbpolan.retrorealms.settings.GameSettings;
+import com.mbpolan.retrorealms.settings.LockSettings;
+import com.mbpolan.retrorealms.settings.LoginSettings;
 import com.mbpolan.retrorealms.settings.MapSettings;
+import com.mbpolan.retrorealms.settings.OverloadSettings;
+import com.mbpolan.retrorealms.settings.PersistenceSettings;
 import com.mbpolan.retrorealms.settings.PlayerSettings;
+import com.mbpolan.retrorealms.settings.RecordingSettings;
+import com.mbpolan.retrorealms.settings.SchedulerSettings;
+import com.mbpolan.retrorealms.settings.SnapshotSettings;
+import com.mbpolan.retrorealms.settings.ThreadSettings;
 import org.springframework.stereotype.Service;
 import org.yaml.snakeyaml.Yaml;
 
@@ -59,10 +71,67 @@ public class SettingsService {
         Map<String, Object> gameSettingsRoot = (Map<String, Object>) new Yaml().load(new FileInputStream(gameSettingsFile));
         Map<String, Object> game = (Map<String, Object>) gameSettingsRoot.get("game");
         Map<String, Object> players = (Map<String, Object>) game.get("players");
+        Map<String, Object> areas = (Map<String, Object>) game.get("areas");
+        Map<String, Object> persistence = (Map<String, Object>) game.get("persistence");
+        Map<String, Object> logins = (Map<String, Object>) game.get("logins");
+        Map<String, Object> accounts = (Map<String, Object>) game.get("accounts");
+        Map<String, Object> snapshots = (Map<String, Object>) game.get("snapshots");
+        Map<String, Object> recording = (Map<String, Object>) game.get("recording");
+        Map<String, Object> locks = (Map<String, Object>) game.get("locks");
+        Map<String, Object> dispatch = (Map<String, Object>) game.get("dispatch");
+        Map<String, Object> overload = (Map<String, Object>) game.get("overload");
+        Map<String, Object> scheduler = (Map<String, Object>) game.get("scheduler");
+        Map<String, Object> threads = (Map<String, Object>) game.get("threads");
+        Map<String, Object> admin = (Map<String, Object>) game.get("admin");
 
-        this.gameSettings = new GameSettings(new PlayerSettings(
-                Integer.parseInt(players.get("walkDelay").toString()),
-                Integer.parseInt(players.get("speedMultiplier").toString())));
+        this.gameSettings = new GameSettings(
+                new PlayerSettings(
+                        Integer.parseInt(players.get("walkDelay").toString()),
+                        Integer.parseInt(players.get("speedMultiplier").toString()),
+                        Integer.parseInt(players.get("resumeGrace").toString()),
+                        Integer.parseInt(players.get("spawnArea").toString()),
+                        Integer.parseInt(players.get("spawnX").toString()),
+                        Integer.parseInt(players.get("spawnY").toString())),
+                new AreaSettings(
+                        Integer.parseInt(areas.get("idleTimeout").toString()),
+                        Integer.parseInt(areas.get("chunkSize").toString()),
+                        Integer.parseInt(areas.get("chunkRadius").toString())),
+                new PersistenceSettings(
+                        Integer.parseInt(persistence.get("flushInterval").toString())),
+                new LoginSettings(
+                        Integer.parseInt(logins.get("workers").toString()),
+                        Integer.parseInt(logins.get("queueSize").toString())),
+                new AccountSettings(
+                        Integer.parseInt(accounts.get("cacheSize").toString()),
+                        Integer.parseInt(accounts.get("cacheTtl").toString())),
+                new SnapshotSettings(
+                        snapshots.get("directory").toString(),
+                        Integer.parseInt(snapshots.get("interval").toString())),
+                new RecordingSettings(
+                        Boolean.parseBoolean(recording.get("enabled").toString()),
+                        recording.get("file").toString(),
+                        Integer.parseInt(recording.get("segmentSize").toString())),
+                new LockSettings(
+                        Boolean.parseBoolean(locks.get("profiling").toString()),
+                        Integer.parseInt(locks.get("slowHoldThreshold").toString())),
+                new DispatchSettings(
+                        Integer.parseInt(dispatch.get("workers").toString()),
+                        Integer.parseInt(dispatch.get("deadline").toString()),
+                        Integer.parseInt(dispatch.get("minInterval").toString()),
+                        Integer.parseInt(dispatch.get("maxInterval").toString()),
+                        Integer.parseInt(dispatch.get("busyPlayers").toString())),
+                new OverloadSettings(
+                        Integer.parseInt(overload.get("window").toString()),
+                        Integer.parseInt(overload.get("degradeLag").toString()),
+                        Integer.parseInt(overload.get("shedLag").toString())),
+                new SchedulerSettings(
+                        Integer.parseInt(scheduler.get("workers").toString()),
+                        Integer.parseInt(scheduler.get("tick").toString())),
+                new ThreadSettings(
+                        Boolean.parseBoolean(threads.get("virtual").toString())),
+                new AdminSettings(
+                        Boolean.parseBoolean(admin.get("enabled").toString()),
+                        Boolean.parseBoolean(admin.get("localOnly").toString())));
     }
 
     /**
@@ -118,4 +187,275 @@ public class SettingsService {
     public int getPlayerWalkDelay() {
         return this.gameSettings.getPlayers().getWalkDelay();
     }
+
+    /**
+     * Returns how long a disconnected player is kept in the game in case they reconnect.
+     *
+     * @return The grace period for resuming a session, in milliseconds.
+     */
+    public int getPlayerResumeGrace() {
+        return this.gameSettings.getPlayers().getResumeGrace();
+    }
+
+    /**
+     * Returns the map area where players are placed if the area they were last in no longer exists.
+     *
+     * @return The ID number of the spawn area.
+     */
+    public int getPlayerSpawnArea() {
+        return this.gameSettings.getPlayers().getSpawnArea();
+    }
+
+    /**
+     * Returns the x coordinate where players are placed in the spawn area.
+     *
+     * @return The x coordinate, in pixels.
+     */
+    public int getPlayerSpawnX() {
+        return this.gameSettings.getPlayers().getSpawnX();
+    }
+
+    /**
+     * Returns the y coordinate where players are placed in the spawn area.
+     *
+     * @return The y coordinate, in pixels.
+     */
+    public int getPlayerSpawnY() {
+        return this.gameSettings.getPlayers().getSpawnY();
+    }
+
+    /**
+     * Returns the amount of time a map area must be empty before it is hibernated.
+     *
+     * @return The area idle timeout, in milliseconds.
+     */
+    public int getAreaIdleTimeout() {
+        return this.gameSettings.getAreas().getIdleTimeout();
+    }
+
+    /**
+     * Returns the size of a chunk of tiles that is streamed to players.
+     *
+     * @return The width and height of a chunk, in tiles.
+     */
+    public int getAreaChunkSize() {
+        return this.gameSettings.getAreas().getChunkSize();
+    }
+
+    /**
+     * Returns how many chunks around a player's position should be streamed to them.
+     *
+     * @return The radius around the player's chunk, in chunks.
+     */
+    public int getAreaChunkRadius() {
+        return this.gameSettings.getAreas().getChunkRadius();
+    }
+
+    /**
+     * Returns how often pending changes to player state are written to the database.
+     *
+     * @return The flush interval, in milliseconds.
+     */
+    public int getPersistenceFlushInterval() {
+        return this.gameSettings.getPersistence().getFlushInterval();
+    }
+
+    /**
+     * Returns the number of threads that process login requests.
+     *
+     * @return The number of login workers.
+     */
+    public int getLoginWorkers() {
+        return this.gameSettings.getLogins().getWorkers();
+    }
+
+    /**
+     * Returns how many login requests can wait for a worker before new ones are turned away.
+     *
+     * @return The maximum number of queued login requests.
+     */
+    public int getLoginQueueSize() {
+        return this.gameSettings.getLogins().getQueueSize();
+    }
+
+    /**
+     * Returns the maximum number of user accounts to keep cached in memory.
+     *
+     * @return The account cache size.
+     */
+    public int getAccountCacheSize() {
+        return this.gameSettings.getAccounts().getCacheSize();
+    }
+
+    /**
+     * Returns how long a cached user account remains valid.
+     *
+     * @return The time to live for cached accounts, in milliseconds.
+     */
+    public int getAccountCacheTtl() {
+        return this.gameSettings.getAccounts().getCacheTtl();
+    }
+
+    /**
+     * Returns the directory where world snapshots and the recovery journal are stored.
+     *
+     * @return The path to the snapshot directory.
+     */
+    public String getSnapshotDirectory() {
+        return this.gameSettings.getSnapshots().getDirectory();
+    }
+
+    /**
+     * Returns how often a snapshot of the world is saved.
+     *
+     * @return The snapshot interval, in milliseconds.
+     */
+    public int getSnapshotInterval() {
+        return this.gameSettings.getSnapshots().getInterval();
+    }
+
+    /**
+     * Returns settings that control whether player inputs are recorded.
+     *
+     * @return Settings for recording player inputs.
+     */
+    public RecordingSettings getRecordingSettings() {
+        return this.gameSettings.getRecording();
+    }
+
+    /**
+     * Returns whether statistics are recorded about how map areas are locked.
+     *
+     * @return true if lock profiling is enabled, false otherwise.
+     */
+    public boolean isLockProfilingEnabled() {
+        return this.gameSettings.getLocks().isProfiling();
+    }
+
+    /**
+     * Returns how long a map area can be locked before a warning is logged, when lock profiling is enabled.
+     *
+     * @return The slow hold threshold, in milliseconds, or 0 to never log a warning.
+     */
+    public int getLockSlowHoldThreshold() {
+        return this.gameSettings.getLocks().getSlowHoldThreshold();
+    }
+
+    /**
+     * Returns the number of threads that send out game state updates for map areas in parallel.
+     *
+     * @return The number of dispatch workers, or 0 to send updates on the game clock's thread.
+     */
+    public int getDispatchWorkers() {
+        return this.gameSettings.getDispatch().getWorkers();
+    }
+
+    /**
+     * Returns how long after a dispatch cycle starts an area's update can still be sent in that cycle.
+     *
+     * @return The dispatch deadline, in milliseconds.
+     */
+    public int getDispatchDeadline() {
+        return this.gameSettings.getDispatch().getDeadline();
+    }
+
+    /**
+     * Returns the shortest time between game state updates for a map area, used for the busiest areas.
+     *
+     * @return The minimum dispatch interval, in milliseconds.
+     */
+    public int getDispatchMinInterval() {
+        return this.gameSettings.getDispatch().getMinInterval();
+    }
+
+    /**
+     * Returns the longest time between game state updates for a map area, used for areas with little activity.
+     *
+     * @return The maximum dispatch interval, in milliseconds.
+     */
+    public int getDispatchMaxInterval() {
+        return this.gameSettings.getDispatch().getMaxInterval();
+    }
+
+    /**
+     * Returns how many players must change between updates for a map area to be updated at the fastest rate.
+     *
+     * @return The number of changed players that makes an area busy.
+     */
+    public int getDispatchBusyPlayers() {
+        return this.gameSettings.getDispatch().getBusyPlayers();
+    }
+
+    /**
+     * Returns how often the server checks whether it has fallen behind.
+     *
+     * @return The overload window, in milliseconds.
+     */
+    public int getOverloadWindow() {
+        return this.gameSettings.getOverload().getWindow();
+    }
+
+    /**
+     * Returns how late scheduled game tasks may run before game state updates are sent less often.
+     *
+     * @return The lag at which the server degrades, in milliseconds.
+     */
+    public int getOverloadDegradeLag() {
+        return this.gameSettings.getOverload().getDegradeLag();
+    }
+
+    /**
+     * Returns how late scheduled game tasks may run before new logins are turned away.
+     *
+     * @return The lag at which the server sheds load, in milliseconds.
+     */
+    public int getOverloadShedLag() {
+        return this.gameSettings.getOverload().getShedLag();
+    }
+
+    /**
+     * Returns the number of threads that run scheduled tasks for map areas, such as player movements.
+     *
+     * @return The number of scheduler workers, or 0 to use one per available processor.
+     */
+    public int getSchedulerWorkers() {
+        return this.gameSettings.getScheduler().getWorkers();
+    }
+
+    /**
+     * Returns the granularity at which scheduled tasks for map areas run.
+     *
+     * @return The scheduler tick, in milliseconds.
+     */
+    public int getSchedulerTick() {
+        return this.gameSettings.getScheduler().getTick();
+    }
+
+    /**
+     * Returns whether blocking work, such as handling inbound messages, logins and persistence, should run on
+     * virtual threads.
+     *
+     * @return true to use virtual threads where the JVM supports them, false to use platform threads.
+     */
+    public boolean isVirtualThreadsEnabled() {
+        return this.gameSettings.getThreads().isVirtual();
+    }
+
+    /**
+     * Returns whether administrative operations, such as reloading the map, can be used.
+     *
+     * @return true if the admin endpoints are enabled, false otherwise.
+     */
+    public boolean isAdminEnabled() {
+        return this.gameSettings.getAdmin().isEnabled();
+    }
+
+    /**
+     * Returns whether administrative operations can only be used from the machine the server runs on.
+     *
+     * @return true if only loopback clients may use the admin endpoints, false to allow any client.
+     */
+    public boolean isAdminLocalOnly() {
+        return this.gameSettings.getAdmin().isLocalOnly();
+    }
 }
@@ -0,0 +1,329 @@
+package com.mbpolan.retrorealms.services;
+
+import com.mbpolan.retrorealms.services.beans.MapArea;
+import com.mbpolan.retrorealms.services.beans.Player;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service that periodically saves a snapshot of all players in the world, so that their state can be recovered if
+ * the server crashes.
+ *
+ * Each map area is copied separately while it's briefly locked, and the copies are written to disk in the
+ * background, so the game is never paused for a snapshot. Players moving between map areas are recorded in an
+ * append-only journal in between snapshots. Every record is stamped with a sequence number, which lets recovery
+ * decide whether a snapshot or a journal entry holds the latest state for a player.
+ *
+ * Recovery only happens after a crash. When the server stops cleanly, all player state is written to the database
+ * and a marker file is left behind, so the next startup discards the snapshot instead of overwriting newer data.
+ *
+ * @author mbpolan
+ */
+@Service
+public class SnapshotService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SnapshotService.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x52525353;
+    private static final int FORMAT_VERSION = 1;
+
+    @Autowired
+    private MapService map;
+
+    @Autowired
+    private PersistenceService persistence;
+
+    @Autowired
+    private SettingsService settings;
+
+    private Path snapshotFile;
+    private Path journalFile;
+    private Path cleanShutdownFile;
+    private DataOutputStream journal;
+    private AtomicLong sequence;
+
+    // the journal and snapshots are only ever written on this thread
+    private ScheduledExecutorService snapshotExecutor;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Path directory = Paths.get(settings.getSnapshotDirectory());
+        Files.createDirectories(directory);
+
+        this.snapshotFile = directory.resolve("world.snapshot");
+        this.journalFile = directory.resolve("world.journal");
+        this.cleanShutdownFile = directory.resolve("world.clean");
+
+        if (Files.exists(cleanShutdownFile)) {
+            // the database already has everyone's latest state, so the old snapshot and journal are of no use; the
+            // marker goes last, so that crashing in between still leaves nothing stale to recover from
+            Files.deleteIfExists(snapshotFile);
+            this.sequence = new AtomicLong();
+            this.journal = openJournal(false);
+            Files.delete(cleanShutdownFile);
+        }
+
+        else {
+            this.sequence = new AtomicLong(recover());
+            this.journal = openJournal(true);
+        }
+
+        int interval = settings.getSnapshotInterval();
+        this.snapshotExecutor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "world-snapshot"));
+        this.snapshotExecutor.scheduleWithFixedDelay(this::snapshot, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException, IOException {
+        // save one last snapshot of everyone who is still in the game
+        this.snapshotExecutor.execute(this::snapshot);
+        this.snapshotExecutor.shutdown();
+
+        boolean saved = this.snapshotExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        this.journal.close();
+
+        if (!saved) {
+            LOG.warn("Timed out waiting for the final world snapshot");
+        }
+
+        // the snapshot only needs to be recovered if the database might be missing some of it
+        else if (persistence.flush()) {
+            Files.write(cleanShutdownFile, new byte[0]);
+        }
+
+        else {
+            LOG.warn("Player state could not be saved, the world snapshot will be recovered on the next startup");
+        }
+    }
+
+    /**
+     * Records that a player has moved to another map area.
+     *
+     * The player's state is captured immediately, so it's assumed that both the map area the player left and the
+     * one they entered are locked before this method is invoked.
+     *
+     * @param player The player who moved.
+     */
+    public void recordTransition(Player player) {
+        if (player.getAccountId() == null) {
+            return;
+        }
+
+        PlayerRecord record = new PlayerRecord(player, sequence.incrementAndGet());
+
+        try {
+            snapshotExecutor.execute(() -> appendToJournal(record));
+        }
+
+        catch (RejectedExecutionException ex) {
+            // the final snapshot will include this player anyway
+            LOG.debug("Ignoring transition for player {} during shutdown", player.getUsername());
+        }
+    }
+
+    /**
+     * Saves a snapshot of all players in the world, then starts a new journal.
+     *
+     * Only one map area is locked at a time, and only for reading while its players are copied.
+     */
+    private void snapshot() {
+        List<PlayerRecord> records = new ArrayList<>();
+
+        for (MapArea area : map.getOccupiedMapAreas()) {
+            long stamp = area.lockRead();
+
+            long seq = sequence.get();
+            area.getPlayers().forEach(p -> {
+                if (p.getAccountId() != null) {
+                    records.add(new PlayerRecord(p, seq));
+                }
+            });
+
+            area.unlockRead(stamp);
+        }
+
+        try {
+            // write the snapshot to a temporary file first, so a crash never leaves us with a partial snapshot
+            Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(records.size());
+
+                for (PlayerRecord record : records) {
+                    record.write(out);
+                }
+
+                out.flush();
+                file.getFD().sync();
+            }
+
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // every transition in the journal so far is older than this snapshot, so we can start it afresh
+            this.journal.close();
+            this.journal = openJournal(false);
+
+            LOG.debug("Saved world snapshot with {} players", records.size());
+        }
+
+        catch (IOException ex) {
+            LOG.error("Failed to save world snapshot", ex);
+        }
+    }
+
+    /**
+     * Appends a player's state to the journal.
+     *
+     * @param record The player's state.
+     */
+    private void appendToJournal(PlayerRecord record) {
+        try {
+            record.write(journal);
+            journal.flush();
+        }
+
+        catch (IOException ex) {
+            LOG.error("Failed to write player {} to the journal", record.username, ex);
+        }
+    }
+
+    /**
+     * Opens the journal file for writing.
+     *
+     * @param append true to keep existing entries, false to start with an empty journal.
+     * @return A stream for writing to the journal.
+     * @throws IOException If the journal cannot be opened.
+     */
+    private DataOutputStream openJournal(boolean append) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journalFile.toFile(), append)));
+    }
+
+    /**
+     * Recovers the state of players from the last snapshot and the journal, if any, and queues it to be written to
+     * the database.
+     *
+     * @return The highest sequence number that was recovered.
+     * @throws IOException If the snapshot or journal cannot be read.
+     */
+    private long recover() throws IOException {
+        Map<Long, PlayerRecord> latest = new HashMap<>();
+
+        // start with the state of all players as of the last snapshot
+        if (Files.exists(snapshotFile)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+                if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != FORMAT_VERSION) {
+                    LOG.warn("Ignoring unrecognized world snapshot: {}", snapshotFile);
+                }
+
+                else {
+                    for (int i = in.readInt(); i > 0; i--) {
+                        PlayerRecord record = PlayerRecord.read(in);
+                        latest.put(record.accountId, record);
+                    }
+                }
+            }
+        }
+
+        // then replay any transitions that happened after the snapshot was taken
+        int replayed = 0;
+        if (Files.exists(journalFile)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalFile)))) {
+                while (true) {
+                    PlayerRecord record = PlayerRecord.read(in);
+                    PlayerRecord previous = latest.get(record.accountId);
+
+                    if (previous == null || record.seq > previous.seq) {
+                        latest.put(record.accountId, record);
+                        replayed++;
+                    }
+                }
+            }
+
+            catch (EOFException ex) {
+                // the last entry might be incomplete if we crashed while writing it
+            }
+        }
+
+        latest.values().forEach(r -> persistence.restoreState(r.accountId, r.username, r.mapArea, r.x, r.y,
+                r.direction));
+
+        if (!latest.isEmpty()) {
+            LOG.info("Recovered {} players from the last world snapshot ({} journal entries replayed)",
+                    latest.size(), replayed);
+        }
+
+        return latest.values().stream().mapToLong(r -> r.seq).max().orElse(0);
+    }
+
+    /**
+     * The state of a single player as recorded in a snapshot or the journal.
+     */
+    private static class PlayerRecord {
+
+        private final long accountId;
+        private final String username;
+        private final int mapArea;
+        private final int x;
+        private final int y;
+        private final String direction;
+        private final long seq;
+
+        PlayerRecord(Player player, long seq) {
+            this(player.getAccountId(), player.getUsername(), player.getMapArea(), player.plane().getX1(),
+                    player.plane().getY1(), player.getDirection().getValue(), seq);
+        }
+
+        PlayerRecord(long accountId, String username, int mapArea, int x, int y, String direction, long seq) {
+            this.accountId = accountId;
+            this.username = username;
+            this.mapArea = mapArea;
+            this.x = x;
+            this.y = y;
+            this.direction = direction;
+            this.seq = seq;
+        }
+
+        static PlayerRecord read(DataInputStream in) throws IOException {
+            return new PlayerRecord(in.readLong(), in.readUTF(), in.readInt(), in.readInt(), in.readInt(),
+                    in.readUTF(), in.readLong());
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(accountId);
+            out.writeUTF(username);
+            out.writeInt(mapArea);
+            out.writeInt(x);
+            out.writeInt(y);
+            out.writeUTF(direction);
+            out.writeLong(seq);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.mbpolan.retrorealms.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service that creates the threads that blocking work runs on.
+ *
+ * When virtual threads are enabled, work that spends most of its time waiting, such as database queries, runs on
+ * virtual threads so that it doesn't tie up a platform thread while it waits. Virtual threads only exist on Java 21
+ * and later, so they are looked up reflectively, and platform threads are used instead on older JVMs.
+ *
+ * @author mbpolan
+ */
+@Service
+public class ThreadService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ThreadService.class);
+
+    @Autowired
+    private SettingsService settings;
+
+    // creates named virtual thread builders, or null if virtual threads are not in use
+    private Method ofVirtual;
+    private Method name;
+    private Method factory;
+
+    @PostConstruct
+    public void init() {
+        if (!settings.isVirtualThreadsEnabled()) {
+            return;
+        }
+
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+
+            this.ofVirtual = Thread.class.getMethod("ofVirtual");
+            this.name = builder.getMethod("name", String.class, long.class);
+            this.factory = builder.getMethod("factory");
+
+            LOG.info("Blocking work will run on virtual threads");
+        }
+
+        catch (ReflectiveOperationException ex) {
+            this.ofVirtual = null;
+
+            LOG.warn("Virtual threads are not supported by Java {}, using platform threads instead",
+                    System.getProperty("java.version"));
+        }
+    }
+
+    /**
+     * Returns whether blocking work runs on virtual threads.
+     *
+     * @return true if virtual threads are in use, false otherwise.
+     */
+    public boolean isVirtual() {
+        return ofVirtual != null;
+    }
+
+    /**
+     * Creates a factory for threads that run blocking work.
+     *
+     * @param prefix The prefix of each thread's name, which is followed by a sequence number.
+     * @return A factory for virtual threads if they are in use, or for platform threads otherwise.
+     */
+    public ThreadFactory createThreadFactory(String prefix) {
+        if (isVirtual()) {
+            try {
+                return (ThreadFactory) factory.invoke(name.invoke(ofVirtual.invoke(null), prefix, 1L));
+            }
+
+            catch (ReflectiveOperationException ex) {
+                throw new IllegalStateException("Cannot create virtual thread factory", ex);
+            }
+        }
+
+        AtomicInteger threadId = new AtomicInteger(0);
+        return r -> new Thread(r, prefix + threadId.incrementAndGet());
+    }
+
+    /**
+     * Creates an executor that runs each task on a new virtual thread.
+     *
+     * @param prefix The prefix of each thread's name, which is followed by a sequence number.
+     * @return The executor.
+     * @throws IllegalStateException If virtual threads are not in use.
+     */
+    public ExecutorService createThreadPerTaskExecutor(String prefix) {
+        if (!isVirtual()) {
+            throw new IllegalStateException("Virtual threads are not in use");
+        }
+
+        try {
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, createThreadFactory(prefix));
+        }
+
+        catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Cannot create virtual thread executor", ex);
+        }
+    }
+}
@@ -1,23 +1,26 @@
 package com.mbpolan.retrorealms.services.beans;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 
 /**
  * Bean that contains a snapshot of the state of the game.
  *
+ * Changed players are tracked in a list along with a bitset indexed by their ID numbers, which are kept small and
+ * dense. Adding a player and clearing the state take time proportional to the number of changed players, and the
+ * same storage is reused each time the state is cleared.
+ *
  * @author mbpolan
  */
 public class GameState {
 
-    private Set<Player> players;
+    private List<Player> players;
+    private BitSet changed;
 
     public GameState() {
-        this.players = new HashSet<>();
-    }
-
-    public GameState(Set<Player> players) {
-        this.players = players;
+        this.players = new ArrayList<>();
+        this.changed = new BitSet();
     }
 
     public boolean isDirty() {
@@ -25,22 +28,28 @@ public class GameState {
     }
 
     public void addChangedPlayer(Player player) {
-        this.players.add(player);
+        if (!changed.get(player.getId())) {
+            this.changed.set(player.getId());
+            this.players.add(player);
+        }
     }
 
-    public Set<Player> getPlayers() {
+    public void removeChangedPlayer(Player player) {
+        if (changed.get(player.getId())) {
+            this.changed.clear(player.getId());
+            this.players.remove(player);
+        }
+    }
+
+    public List<Player> getPlayers() {
         return players;
     }
 
-    public GameState reset() {
-        // create a copy of the changed players in this state
-        Set<Player> copiedPlayers = new HashSet<>();
-        copiedPlayers.addAll(players);
+    public void clear() {
+        for (int i = 0; i < players.size(); i++) {
+            this.changed.clear(players.get(i).getId());
+        }
 
-        // reset the players
         this.players.clear();
-
-        // and return an identical copy of the previous state
-        return new GameState(copiedPlayers);
     }
 }
@@ -0,0 +1,125 @@
+package com.mbpolan.retrorealms.services.beans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reusable storage for a game state update that is being sent out to the players in a map area.
+ *
+ * The positions of changed players and the list of recipients are captured while the area is locked, and the update
+ * is encoded after the lock has been released. The same arrays, list and string builder are reused for every update,
+ * so that sending out game states does not create garbage beyond the encoded message itself.
+ *
+ * A buffer must only be used by one thread at a time.
+ *
+ * @author mbpolan
+ */
+public class GameStateBuffer {
+
+    // ID numbers and positions of the changed players
+    private int[] ids;
+    private int[] xs;
+    private int[] ys;
+    private int count;
+
+    // players who should receive the update
+    private List<Player> recipients;
+
+    private StringBuilder json;
+
+    public GameStateBuffer() {
+        this.ids = new int[8];
+        this.xs = new int[8];
+        this.ys = new int[8];
+        this.recipients = new ArrayList<>();
+        this.json = new StringBuilder(256);
+    }
+
+    /**
+     * Captures the changed players of a game state, along with the players who should be told about them.
+     *
+     * It's assumed that the map area the players are in is locked before this method is invoked.
+     *
+     * @param state The game state that was popped from the area.
+     * @param players The players in the area.
+     */
+    public void capture(GameState state, List<Player> players) {
+        List<Player> changed = state.getPlayers();
+
+        if (changed.size() > ids.length) {
+            int length = Math.max(changed.size(), ids.length * 2);
+            this.ids = Arrays.copyOf(ids, length);
+            this.xs = Arrays.copyOf(xs, length);
+            this.ys = Arrays.copyOf(ys, length);
+        }
+
+        this.count = changed.size();
+        for (int i = 0; i < count; i++) {
+            Player player = changed.get(i);
+
+            this.ids[i] = player.getId();
+            this.xs[i] = player.plane().getX1();
+            this.ys[i] = player.plane().getY1();
+        }
+
+        // copy the players one by one, since addAll() creates a temporary array
+        this.recipients.clear();
+        for (int i = 0; i < players.size(); i++) {
+            this.recipients.add(players.get(i));
+        }
+    }
+
+    /**
+     * Returns how many players changed in the captured update.
+     *
+     * @return The number of changed players.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the players who should receive the captured update.
+     *
+     * @return The list of recipients, which is reused by the next capture.
+     */
+    public List<Player> getRecipients() {
+        return recipients;
+    }
+
+    /**
+     * Encodes the captured update as a game state message.
+     *
+     * The result is the same as encoding a {@link com.mbpolan.retrorealms.beans.responses.GameStateResponse}, but
+     * the message is written out directly instead of building a bean for each player first.
+     *
+     * @return The encoded message.
+     */
+    public String encode() {
+        json.setLength(0);
+        json.append("{\"header\":\"gameState\",\"players\":[");
+
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+
+            json.append("{\"id\":").append(ids[i])
+                    .append(",\"username\":null,\"sprite\":null,\"x\":").append(xs[i])
+                    .append(",\"y\":").append(ys[i])
+                    .append(",\"dir\":null}");
+        }
+
+        json.append("]}");
+        return json.toString();
+    }
+
+    /**
+     * Drops references to the captured players, so that they can be garbage collected once they leave the game.
+     */
+    public void clear() {
+        this.count = 0;
+        this.recipients.clear();
+    }
+}
@@ -0,0 +1,61 @@
+package com.mbpolan.retrorealms.services.beans;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Allocator for small, dense ID numbers that can be released and reused.
+ *
+ * The lowest released ID is always handed out first, so IDs stay close to zero and can be used as indexes into
+ * arrays. Allocating and releasing IDs does not block.
+ *
+ * @author mbpolan
+ */
+public class IdAllocator {
+
+    private final AtomicInteger next;
+    private final ConcurrentSkipListSet<Integer> released;
+
+    public IdAllocator() {
+        this.next = new AtomicInteger();
+        this.released = new ConcurrentSkipListSet<>();
+    }
+
+    /**
+     * Allocates an ID number, preferring one that was released earlier.
+     *
+     * @return An ID number that is not in use.
+     */
+    public int allocate() {
+        Integer id = released.pollFirst();
+
+        return id != null ? id : next.getAndIncrement();
+    }
+
+    /**
+     * Releases an ID number so that it can be allocated again.
+     *
+     * @param id The ID number that is no longer in use.
+     */
+    public void release(int id) {
+        released.add(id);
+    }
+
+    /**
+     * Returns the number of ID numbers that are allocated and not yet released.
+     *
+     * @return The number of IDs in use.
+     */
+    public int size() {
+        return next.get() - released.size();
+    }
+
+    /**
+     * Returns an upper bound for all ID numbers that have been allocated.
+     *
+     * @return One more than the highest ID ever allocated.
+     */
+    public int getCapacity() {
+        return next.get();
+    }
+}
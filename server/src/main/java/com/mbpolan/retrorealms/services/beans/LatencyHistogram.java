@@ -0,0 +1,87 @@
+package com.mbpolan.retrorealms.services.beans;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Histogram of durations that can be recorded from any thread without locking.
+ *
+ * Durations are counted in buckets that double in size, so percentiles are only accurate to within a factor of two.
+ * That is plenty to tell a lock held for microseconds apart from one held for milliseconds.
+ *
+ * @author mbpolan
+ */
+public class LatencyHistogram {
+
+    // bucket 0 holds durations of zero, and bucket n holds durations up to 2^n nanoseconds
+    private static final int BUCKETS = 48;
+
+    private final AtomicLongArray counts;
+    private final LongAccumulator max;
+
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.max = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration, in nanoseconds.
+     */
+    public void record(long nanos) {
+        int bucket = nanos <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos - 1));
+
+        counts.incrementAndGet(bucket);
+        max.accumulate(nanos);
+    }
+
+    /**
+     * Returns the number of durations recorded.
+     *
+     * @return The number of durations.
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the longest duration recorded.
+     *
+     * @return The longest duration, in nanoseconds.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns an upper bound for a percentile of the recorded durations.
+     *
+     * @param percentile The percentile, between 0 and 1.
+     * @return The upper bound of the bucket holding the percentile, in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(count * percentile));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+
+            if (seen >= rank) {
+                return i == 0 ? 0 : Math.min(1L << i, getMax());
+            }
+        }
+
+        return getMax();
+    }
+}
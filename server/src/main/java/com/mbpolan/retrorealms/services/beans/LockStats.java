@@ -0,0 +1,101 @@
+package com.mbpolan.retrorealms.services.beans;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics about how a {@link Lockable} resource is locked.
+ *
+ * Waits are recorded for both exclusive and shared locks, while hold times are only recorded for exclusive locks.
+ * A warning is logged whenever an exclusive lock is held for longer than a threshold.
+ *
+ * @author mbpolan
+ */
+public class LockStats {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LockStats.class);
+
+    private final String name;
+    private final long slowHoldNanos;
+    private final LongAdder acquisitions;
+    private final LongAdder contentions;
+    private final LongAdder slowHolds;
+    private final LatencyHistogram waits;
+    private final LatencyHistogram holds;
+
+    /**
+     * Creates statistics for a lock.
+     *
+     * @param name A description of the locked resource, used in log messages.
+     * @param slowHoldThreshold Hold time in milliseconds after which a warning is logged, or 0 to never log one.
+     */
+    public LockStats(String name, int slowHoldThreshold) {
+        this.name = name;
+        this.slowHoldNanos = TimeUnit.MILLISECONDS.toNanos(slowHoldThreshold);
+        this.acquisitions = new LongAdder();
+        this.contentions = new LongAdder();
+        this.slowHolds = new LongAdder();
+        this.waits = new LatencyHistogram();
+        this.holds = new LatencyHistogram();
+    }
+
+    /**
+     * Records that the lock was acquired.
+     *
+     * @param waitNanos How long it took to acquire the lock, in nanoseconds.
+     * @param contended true if the lock could not be acquired right away, false otherwise.
+     */
+    public void recordAcquire(long waitNanos, boolean contended) {
+        acquisitions.increment();
+        waits.record(waitNanos);
+
+        if (contended) {
+            contentions.increment();
+        }
+    }
+
+    /**
+     * Records that an exclusive lock was released.
+     *
+     * This should be called after the lock has been released, since a warning might be logged.
+     *
+     * @param holdNanos How long the lock was held, in nanoseconds.
+     */
+    public void recordHold(long holdNanos) {
+        holds.record(holdNanos);
+
+        if (slowHoldNanos > 0 && holdNanos >= slowHoldNanos) {
+            slowHolds.increment();
+
+            LOG.warn("Lock on {} was held for {} ms by {}", name, TimeUnit.NANOSECONDS.toMillis(holdNanos),
+                    Thread.currentThread().getName());
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    public long getContentions() {
+        return contentions.sum();
+    }
+
+    public long getSlowHolds() {
+        return slowHolds.sum();
+    }
+
+    public LatencyHistogram getWaits() {
+        return waits;
+    }
+
+    public LatencyHistogram getHolds() {
+        return holds;
+    }
+}
@@ -1,26 +1,221 @@
 package com.mbpolan.retrorealms.services.beans;
 
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
 
 /**
  * Class that models a resource that requires synchronization.
  *
+ * The resource can be locked exclusively by a writer, or shared by any number of readers. Read-only queries can
+ * also be attempted optimistically without taking a lock at all. The lock is not reentrant: a thread holding it
+ * must not try to lock it again in any mode.
+ *
+ * Statistics about waits and hold times can optionally be recorded, at the cost of reading the clock around each
+ * lock and unlock.
+ *
  * @author mbpolan
  */
 public abstract class Lockable {
 
-    private Lock lock;
+    private final StampedLock lock;
+
+    // stamp of the exclusive lock and when it was acquired, only ever accessed by the thread that holds it; the
+    // field is written right after the lock is acquired and cleared right before it is released, so the lock itself
+    // orders every access to it. Since the lock is not reentrant, there is never more than one stamp to remember,
+    // and a thread that locks the resource twice deadlocks instead of overwriting it
+    private long writeStamp;
+    private long lockedAt;
+
+    // statistics about this lock, if they are being recorded
+    private LockStats stats;
 
     public Lockable() {
-        this.lock = new ReentrantLock();
+        this.lock = new StampedLock();
     }
 
     public void lock() {
-        this.lock.lock();
+        if (stats == null) {
+            setWriteStamp(this.lock.writeLock());
+            return;
+        }
+
+        long start = System.nanoTime();
+        long stamp = this.lock.tryWriteLock();
+        boolean contended = stamp == 0;
+
+        if (contended) {
+            stamp = this.lock.writeLock();
+        }
+
+        setWriteStamp(stamp);
+        this.lockedAt = System.nanoTime();
+
+        stats.recordAcquire(lockedAt - start, contended);
     }
 
     public void unlock() {
-        this.lock.unlock();
+        // an unlock without a matching lock would otherwise release someone else's stamp
+        long stamp = this.writeStamp;
+        assert stamp != 0 && this.lock.isWriteLocked() : "Resource is not locked";
+
+        this.writeStamp = 0;
+
+        if (stats == null) {
+            this.lock.unlockWrite(stamp);
+            return;
+        }
+
+        long held = System.nanoTime() - lockedAt;
+        this.lock.unlockWrite(stamp);
+
+        stats.recordHold(held);
+    }
+
+    /**
+     * Locks the resource for reading, while allowing other readers to do the same.
+     *
+     * @return A stamp that must be passed to {@link #unlockRead(long)}.
+     */
+    public long lockRead() {
+        if (stats == null) {
+            return this.lock.readLock();
+        }
+
+        long start = System.nanoTime();
+        long stamp = this.lock.tryReadLock();
+        boolean contended = stamp == 0;
+
+        if (contended) {
+            stamp = this.lock.readLock();
+        }
+
+        stats.recordAcquire(System.nanoTime() - start, contended);
+        return stamp;
+    }
+
+    /**
+     * Releases a lock that was acquired with {@link #lockRead()}.
+     *
+     * @param stamp The stamp returned when the lock was acquired.
+     */
+    public void unlockRead(long stamp) {
+        this.lock.unlockRead(stamp);
+    }
+
+    /**
+     * Runs a read-only query against the resource, without taking a lock if possible.
+     *
+     * The query is first run optimistically, and only run again under a read lock if a writer held or acquired the
+     * lock in the meantime. The query must therefore not have side effects, and it must not be run while the
+     * calling thread already holds the lock.
+     *
+     * @param query The query to run.
+     * @param <T> The type of result.
+     * @return The result of the query.
+     */
+    protected <T> T readOptimistically(Supplier<T> query) {
+        long stamp = this.lock.tryOptimisticRead();
+
+        if (stamp != 0) {
+            try {
+                T result = query.get();
+                if (this.lock.validate(stamp)) {
+                    return result;
+                }
+            }
+
+            catch (RuntimeException ex) {
+                // the query might have seen the resource halfway through a write, in which case we try again
+                if (this.lock.validate(stamp)) {
+                    throw ex;
+                }
+            }
+        }
+
+        stamp = lockRead();
+
+        try {
+            return query.get();
+        }
+
+        finally {
+            unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Runs a read-only query against the resource without taking a lock, then locks the resource exclusively.
+     *
+     * If no writer held or acquired the lock while the query ran, the optimistic read is converted into the
+     * exclusive lock directly, so the result still holds once the lock is acquired. Otherwise the query is run again
+     * after locking. Either way, the lock is held when this method returns and must be released with
+     * {@link #unlock()}. The same restrictions as for {@link #readOptimistically(Supplier)} apply to the query.
+     *
+     * @param query The query to run.
+     * @param <T> The type of result.
+     * @return The result of the query, as of when the lock was acquired.
+     */
+    protected <T> T lockAfterReading(Supplier<T> query) {
+        long stamp = this.lock.tryOptimisticRead();
+
+        if (stamp != 0) {
+            try {
+                T result = query.get();
+
+                // fails if a writer intervened, or if readers are holding the lock right now
+                long converted = this.lock.tryConvertToWriteLock(stamp);
+                if (converted != 0) {
+                    setWriteStamp(converted);
+
+                    if (stats != null) {
+                        this.lockedAt = System.nanoTime();
+                        stats.recordAcquire(0, false);
+                    }
+
+                    return result;
+                }
+            }
+
+            catch (RuntimeException ex) {
+                // as with an optimistic read, the query might have seen the resource halfway through a write
+                if (this.lock.validate(stamp)) {
+                    throw ex;
+                }
+            }
+        }
+
+        lock();
+
+        try {
+            return query.get();
+        }
+
+        catch (RuntimeException ex) {
+            unlock();
+            throw ex;
+        }
+    }
+
+    /**
+     * Remembers the stamp of a newly acquired exclusive lock.
+     *
+     * @param stamp The stamp of the exclusive lock.
+     */
+    private void setWriteStamp(long stamp) {
+        // a stamp left behind means the previous holder never unlocked the resource
+        assert this.writeStamp == 0 : "Resource was locked without being unlocked";
+
+        this.writeStamp = stamp;
+    }
+
+    /**
+     * Starts recording statistics about this lock.
+     *
+     * This must be called before the resource is shared with other threads.
+     *
+     * @param stats The statistics to record into.
+     */
+    public void setLockStats(LockStats stats) {
+        this.stats = stats;
     }
 }
@@ -1,14 +1,21 @@
 package com.mbpolan.retrorealms.services.beans;
 
 import com.mbpolan.retrorealms.beans.responses.AbstractResponse;
+import com.mbpolan.retrorealms.beans.responses.MapChunkResponse;
+import com.mbpolan.retrorealms.services.clock.GameClock;
 import com.mbpolan.retrorealms.services.map.Door;
 import com.mbpolan.retrorealms.services.map.Layer;
 import com.mbpolan.retrorealms.services.map.Tile;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Represents a single area of the map that contains tiles, players and other entities.
@@ -21,58 +28,120 @@ import java.util.stream.Collectors;
  */
 public class MapArea extends Lockable {
 
+    // ID number of this area
+    private int id;
+
     // list of players currently in this area
     private List<Player> players;
 
     // matrix of static tiles in this area, in row-major order
     private List<Layer> layers;
 
-    // list of doors found in this map area
+    // list of doors found in this map area, and the movement results for reaching each of them
     private List<Door> doors;
+    private MoveAction[] doorActions;
 
-    // list of static and dynamic collision planes in this area
+    // list of dynamic collision planes in this area, such as players and the bounds of the area itself
     private List<Rectangle> planes;
 
+    // static collision geometry, indexed by tile position in row-major order; each cell refers to the shared
+    // bounding boxes of the tiles placed there instead of holding copies of them
+    private Tile[][] solids;
+
+    // world coordinates of the last static bounding box that a collision was detected with
+    private Rectangle hit;
+
     // map area dimensions and current state
     private int width;
     private int height;
     private int tileSize;
+
+    // changes are collected into one game state while the other holds the changes that were last popped
     private GameState state;
+    private GameState popped;
+    private Supplier<Boolean> pendingStateQuery;
+
+    // storage for sending out game states, only used by whichever thread is dispatching this area's state
+    private GameStateBuffer dispatchBuffer;
+
+    // tiles are streamed to players in square chunks, which are encoded once and then reused
+    private int chunkSize;
+    private int chunksWide;
+    private int chunksHigh;
+    private Map<Integer, String> encodedChunks;
+
+    // tracked outside of the lock so that idle areas can be skipped without contention
+    private volatile int population;
+    private volatile boolean active;
+    private volatile boolean retired;
+    private volatile long idleSince;
+    private volatile long nextDispatch;
+    private GameClock clock;
 
     /**
      * Creates a map area with tiles and geometry.
      *
-     * The initial game state contains no players.
+     * The initial game state contains no players, and the area starts out hibernating: collision planes are only
+     * computed once the area is activated by a player entering it.
      *
+     * @param id The ID number of the map area.
      * @param width The width of the map area, in tiles.
      * @param height The height of the map area, in tiles.
      * @param tileSize The size (width and height) of a single, square tile.
+     * @param chunkSize The size (width and height) of a single chunk of tiles streamed to players.
      * @param layers The list of rectangles of tiles in this area.
      * @param doors The list of doors in this area.
+     * @param clock The clock used to track how long the area has been idle.
      */
-    public MapArea(int width, int height, int tileSize, List<Layer> layers, List<Door> doors) {
+    public MapArea(int id, int width, int height, int tileSize, int chunkSize, List<Layer> layers, List<Door> doors,
+                   GameClock clock) {
+        this.id = id;
+        this.clock = clock;
         this.players = new ArrayList<>();
         this.width = width;
         this.height = height;
         this.tileSize = tileSize;
+        this.chunkSize = chunkSize;
+        this.chunksWide = (width + chunkSize - 1) / chunkSize;
+        this.chunksHigh = (height + chunkSize - 1) / chunkSize;
+        this.encodedChunks = new ConcurrentHashMap<>();
+        this.hit = new Rectangle();
         this.layers = layers;
         this.doors = doors;
+        this.doorActions = doors.stream().map(MoveAction::moveToDoor).toArray(MoveAction[]::new);
         this.state = new GameState();
-        this.planes = new ArrayList<>();
+        this.popped = new GameState();
+        this.pendingStateQuery = () -> state.isDirty();
+        this.dispatchBuffer = new GameStateBuffer();
+        this.active = false;
+        this.idleSince = clock.millis();
+    }
 
-        // compute the initial collection of collision planes
-        computePlanes();
+    /**
+     * Returns the ID number of this map area.
+     *
+     * @return The area ID number.
+     */
+    public int getId() {
+        return id;
     }
 
     /**
      * Adds a player to this map area.
      *
+     * If the area is hibernating, it will be activated first.
+     *
      * @param player The player to add.
      */
     public void addPlayer(Player player) {
+        if (!active) {
+            activate();
+        }
+
         this.players.add(player);
         this.planes.add(player.plane());
         this.state.addChangedPlayer(player);
+        this.population = players.size();
     }
 
     /**
@@ -83,6 +152,108 @@ public class MapArea extends Lockable {
     public void removePlayer(Player player) {
         this.players.remove(player);
         this.planes.remove(player.plane());
+        this.state.removeChangedPlayer(player);
+        this.population = players.size();
+
+        // once the last player leaves, there is no one left to receive pending state changes
+        if (players.isEmpty()) {
+            this.state.clear();
+            this.popped.clear();
+            this.idleSince = clock.millis();
+        }
+    }
+
+    /**
+     * Determines if a player is in this map area.
+     *
+     * @param player The player to look for.
+     * @return true if the player is in this area, false otherwise.
+     */
+    public boolean hasPlayer(Player player) {
+        return players.contains(player);
+    }
+
+    /**
+     * Determines if there are no players in this map area.
+     *
+     * This method does not require the area to be locked.
+     *
+     * @return true if the area is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return population == 0;
+    }
+
+    /**
+     * Determines if this area has its collision planes computed and is ready to accept players.
+     *
+     * This method does not require the area to be locked.
+     *
+     * @return true if active, false if hibernating.
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Determines if this area has been empty for at least a given period of time.
+     *
+     * This method does not require the area to be locked.
+     *
+     * @param now The current time, in milliseconds.
+     * @param idleTimeout The amount of time the area must be empty for, in milliseconds.
+     * @return true if the area can be hibernated, false otherwise.
+     */
+    public boolean isIdle(long now, long idleTimeout) {
+        return active && population == 0 && now - idleSince >= idleTimeout;
+    }
+
+    /**
+     * Determines if this area has been replaced by another and should no longer be used.
+     *
+     * This method does not require the area to be locked.
+     *
+     * @return true if retired, false otherwise.
+     */
+    public boolean isRetired() {
+        return retired;
+    }
+
+    /**
+     * Marks this map area as replaced by another.
+     *
+     * The area must not contain any players when this method is invoked.
+     */
+    public void retire() {
+        hibernate();
+        this.retired = true;
+    }
+
+    /**
+     * Prepares this map area to accept players by computing its collision planes.
+     */
+    public void activate() {
+        computePlanes();
+
+        this.active = true;
+    }
+
+    /**
+     * Puts this map area into hibernation, releasing any derived collision geometry.
+     *
+     * The area must not contain any players when this method is invoked.
+     */
+    public void hibernate() {
+        if (!players.isEmpty()) {
+            throw new IllegalStateException(String.format("Cannot hibernate map area %d with players in it", id));
+        }
+
+        this.active = false;
+        this.planes = null;
+        this.solids = null;
+        this.state.clear();
+        this.popped.clear();
+        this.encodedChunks.clear();
     }
 
     /**
@@ -116,17 +287,90 @@ public class MapArea extends Lockable {
     }
 
     /**
-     * Returns a geometry of this area represented by tiles.
+     * Returns the number of layers of tiles in this area.
+     *
+     * @return The amount of layers.
+     */
+    public int getLayerCount() {
+        return layers.size();
+    }
+
+    /**
+     * Returns the doors that lead out of this map area.
+     *
+     * @return An immutable list of {@link Door} beans.
+     */
+    public List<Door> getDoors() {
+        return Collections.unmodifiableList(doors);
+    }
+
+    /**
+     * Returns the size of a single chunk of tiles.
+     *
+     * @return The width and height of a chunk, in tiles.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Returns the total number of chunks of tiles in this area.
+     *
+     * @return The amount of chunks.
+     */
+    public int getChunkCount() {
+        return chunksWide * chunksHigh;
+    }
+
+    /**
+     * Returns the index of the chunk that contains a pixel coordinate.
+     *
+     * @param x The x coordinate, in pixels.
+     * @param y The y coordinate, in pixels.
+     * @return The index of the chunk, clamped to the bounds of the area.
+     */
+    public int getChunkAt(int x, int y) {
+        int pixels = chunkSize * tileSize;
+        int cx = Math.max(0, Math.min(chunksWide - 1, x / pixels));
+        int cy = Math.max(0, Math.min(chunksHigh - 1, y / pixels));
+
+        return cy * chunksWide + cx;
+    }
+
+    /**
+     * Computes the indices of all chunks within a square radius of another chunk.
      *
-     * @return A list of rectangles of tiles in each layer, in row-major order..
+     * @param chunk The index of the center chunk.
+     * @param radius The radius around the chunk, in chunks.
+     * @param chunks Array to store the indices in, which must hold at least (2 * radius + 1)^2 entries.
+     * @return The number of nearby chunks stored in the array, including the center chunk itself.
      */
-    public List<List<Integer>> getTileIds() {
-        return this.layers.stream()
-                .map(l -> l.getTiles().stream()
-                        .flatMap(List::stream)
-                        .map(col -> col == null ? 0 : col.getId())
-                        .collect(Collectors.toList()))
-                .collect(Collectors.toList());
+    public int getChunksAround(int chunk, int radius, int[] chunks) {
+        int cx = chunk % chunksWide;
+        int cy = chunk / chunksWide;
+        int count = 0;
+
+        for (int y = Math.max(0, cy - radius); y <= Math.min(chunksHigh - 1, cy + radius); y++) {
+            for (int x = Math.max(0, cx - radius); x <= Math.min(chunksWide - 1, cx + radius); x++) {
+                chunks[count++] = y * chunksWide + x;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns a chunk of tiles, encoded as a message that can be sent to players.
+     *
+     * Chunks are encoded the first time they are requested, and the encoded form is reused until the area
+     * hibernates. This method does not require the area to be locked.
+     *
+     * @param chunk The index of the chunk.
+     * @param encoder The function that encodes the chunk message.
+     * @return The encoded chunk message.
+     */
+    public String getEncodedChunk(int chunk, Function<AbstractResponse, String> encoder) {
+        return encodedChunks.computeIfAbsent(chunk, c -> encoder.apply(createChunk(c)));
     }
 
     /**
@@ -156,23 +400,76 @@ public class MapArea extends Lockable {
         return state;
     }
 
+    /**
+     * Returns the storage used for sending out game state updates for this area.
+     *
+     * Only one thread at a time may dispatch the state of an area, and the buffer belongs to that thread for as long
+     * as it does.
+     *
+     * @return The dispatch buffer.
+     */
+    public GameStateBuffer getDispatchBuffer() {
+        return dispatchBuffer;
+    }
+
+    /**
+     * Returns when the next game state update for this area is due.
+     *
+     * This method does not require the area to be locked.
+     *
+     * @return The time the next update is due, in milliseconds.
+     */
+    public long getNextDispatch() {
+        return nextDispatch;
+    }
+
+    public void setNextDispatch(long nextDispatch) {
+        this.nextDispatch = nextDispatch;
+    }
+
+    /**
+     * Determines if the state of this map area has changed since it was last popped.
+     *
+     * This method does not require the area to be locked, and must not be called while holding its lock.
+     *
+     * @return true if there are pending changes, false otherwise.
+     */
+    public boolean hasPendingState() {
+        return readOptimistically(pendingStateQuery);
+    }
+
     /**
      * Recomputes the current state of this map area and determines if something changed.
      *
+     * The two game states of the area are swapped, so that new changes are collected into the one that was popped
+     * last time. The returned state is reused on the next call, so it should only be read while the area remains
+     * locked.
+     *
+     * Unlike the other queries, this one needs the exclusive lock: swapping the states changes where players
+     * moving in the area record their changes, and the positions of the changed players must not move while
+     * they are read.
+     *
      * @return The previous game state if changed, null otherwise.
      */
     public GameState popState() {
-        GameState previous = null;
-        if (state.isDirty()) {
-            previous = state.reset();
+        if (!state.isDirty()) {
+            return null;
         }
 
+        GameState previous = state;
+
+        this.popped.clear();
+        this.state = popped;
+        this.popped = previous;
+
         return previous;
     }
 
     /**
      * Tests if a player can move in a given direction.
      *
+     * Neither the player nor the area is modified, so holding a read lock on the area is enough.
+     *
      * @param player The moving player.
      * @param direction The direction in which the player intends to move.
      * @return true if the move can be done, false if not.
@@ -181,6 +478,22 @@ public class MapArea extends Lockable {
         return computePlayerMovement(player, direction, false).isValid();
     }
 
+    /**
+     * Locks this map area, and tests if a player can move in a given direction.
+     *
+     * The test is run before the lock is acquired, and the lock is only taken exclusively once it's done, unless the
+     * area changed in the meantime. This keeps players in a busy area from queuing behind each other while their
+     * moves are being checked. The caller must release the lock with {@link #unlock()}, and must not already hold it.
+     *
+     * @param player The moving player.
+     * @param direction The direction in which the player intends to move.
+     * @return true if the move can be done, false if not.
+     * @see #canPlayerMove(Player, Direction)
+     */
+    public boolean lockAndTestMove(Player player, Direction direction) {
+        return lockAfterReading(() -> canPlayerMove(player, direction));
+    }
+
     /**
      * Computes a player movement and updates their position if needed.
      *
@@ -200,25 +513,31 @@ public class MapArea extends Lockable {
         int pixelHeight = height * tileSize;
 
         // create "virtual" planes that define the bounds of the map area itself - top, bottom, left, right
+        this.planes = new ArrayList<>();
         this.planes.add(new Rectangle(0, -tileSize, pixelWidth, 0));
         this.planes.add(new Rectangle(0, pixelHeight, pixelWidth, pixelHeight + tileSize));
         this.planes.add(new Rectangle(-tileSize, 0, 0, pixelHeight));
         this.planes.add(new Rectangle(pixelWidth, 0, pixelWidth + tileSize, pixelHeight));
 
+        // index the tiles that have bounding boxes by their position in the area
+        this.solids = new Tile[width * height][];
         this.layers.forEach(layer -> {
-            // compute collision planes using the tiles that have bounding boxes
             for (int y = 0; y < height; y++) {
                 for (int x = 0; x < width; x++) {
                     Tile tile = layer.getTiles().get(y).get(x);
 
                     if (tile != null && tile.hasBoundingBoxes()) {
-                        // transform each bounding box into a collision plane
-                        for (Rectangle bbox : tile.getBoundingBoxes()) {
-                            Rectangle plane = bbox.copy();
+                        int cell = y * width + x;
+                        Tile[] tiles = solids[cell];
 
-                            // the plane's position relative to the tile's position on the map)
-                            plane.translate((x * tileSize) + plane.getX1(), (y * tileSize) + plane.getY1());
-                            this.planes.add(plane);
+                        if (tiles == null) {
+                            solids[cell] = new Tile[]{ tile };
+                        }
+
+                        else {
+                            tiles = Arrays.copyOf(tiles, tiles.length + 1);
+                            tiles[tiles.length - 1] = tile;
+                            solids[cell] = tiles;
                         }
                     }
                 }
@@ -226,12 +545,42 @@ public class MapArea extends Lockable {
         });
     }
 
+    /**
+     * Creates a message containing the tiles in a chunk of this area.
+     *
+     * @param chunk The index of the chunk.
+     * @return The chunk message.
+     */
+    private MapChunkResponse createChunk(int chunk) {
+        int x1 = (chunk % chunksWide) * chunkSize;
+        int y1 = (chunk / chunksWide) * chunkSize;
+        int x2 = Math.min(width, x1 + chunkSize);
+        int y2 = Math.min(height, y1 + chunkSize);
+
+        // collect the tiles in each layer that fall into this chunk, in row-major order
+        List<List<Integer>> tileIds = new ArrayList<>();
+        for (Layer layer : layers) {
+            List<Integer> ids = new ArrayList<>();
+
+            for (int y = y1; y < y2; y++) {
+                for (int x = x1; x < x2; x++) {
+                    Tile tile = layer.getTiles().get(y).get(x);
+                    ids.add(tile == null ? 0 : tile.getId());
+                }
+            }
+
+            tileIds.add(ids);
+        }
+
+        return new MapChunkResponse(x1, y1, x2 - x1, y2 - y1, tileIds);
+    }
+
     /**
      * Attempts to move a player in their current direction, and optionally commits the change.
      *
      * @param player The moving player.
      * @param direction The direction in which to move the player.
-     * @param commit true to commit the movement, false to rollback if successful.
+     * @param commit true to commit the movement, false to only test it against a copy of the player's plane.
      * @return The action that resulted from the movement.
      */
     private MoveAction computePlayerMovement(Player player, Direction direction, boolean commit) {
@@ -252,12 +601,12 @@ public class MapArea extends Lockable {
                 break;
         }
 
-        // move the player to their new position
-        Rectangle rect = player.plane();
+        // move the player to their new position, or a copy of it if we're only testing the movement
+        Rectangle rect = commit ? player.plane() : player.plane().copy();
         rect.translate(dx, dy);
 
         // has the player collided with another object on the map?
-        Rectangle other = findCollision(rect);
+        Rectangle other = findCollision(rect, player.plane(), commit ? hit : new Rectangle());
         if (other != null) {
             // rollback the movement
             rect.translate(-dx, -dy);
@@ -290,17 +639,13 @@ public class MapArea extends Lockable {
         }
 
         // should we commit the movement change?
-        if (!commit) {
-            rect.translate(-dx, -dy);
-        }
-
-        else {
+        if (commit) {
             state.addChangedPlayer(player);
 
             // has the player reached a door?
-            Door door = findDoorCollision(rect);
-            if (door != null) {
-                return MoveAction.moveToDoor(door);
+            int door = findDoorCollision(rect);
+            if (door >= 0) {
+                return doorActions[door];
             }
         }
 
@@ -311,25 +656,72 @@ public class MapArea extends Lockable {
      * Detects is a given rectangle overlaps with any other collision plane in the area.
      *
      * @param rect The rectangle to test.
-     * @return true if there is a collision, false if not.
+     * @param self The plane of the entity being tested, which is not checked against itself.
+     * @param hit Rectangle to store the world coordinates of a colliding tile bounding box in.
+     * @return The plane that the rectangle collides with, or null if none.
      */
-    private Rectangle findCollision(Rectangle rect) {
-        return this.planes.stream()
-                .filter(p -> p != rect && p.overlaps(rect))
-                .findAny()
-                .orElse(null);
+    private Rectangle findCollision(Rectangle rect, Rectangle self, Rectangle hit) {
+        // test dynamic planes first
+        for (int i = 0; i < planes.size(); i++) {
+            Rectangle plane = planes.get(i);
+
+            if (plane != self && plane.overlaps(rect)) {
+                return plane;
+            }
+        }
+
+        // then test the bounding boxes of tiles in cells near the rectangle, positioning each one relative to the
+        // origin of its cell
+        int cx1 = Math.max(0, Math.floorDiv(rect.getX1(), tileSize) - 1);
+        int cy1 = Math.max(0, Math.floorDiv(rect.getY1(), tileSize) - 1);
+        int cx2 = Math.min(width - 1, Math.floorDiv(rect.getX2(), tileSize) + 1);
+        int cy2 = Math.min(height - 1, Math.floorDiv(rect.getY2(), tileSize) + 1);
+
+        for (int cy = cy1; cy <= cy2; cy++) {
+            for (int cx = cx1; cx <= cx2; cx++) {
+                Tile[] tiles = solids[cy * width + cx];
+                if (tiles == null) {
+                    continue;
+                }
+
+                int ox = cx * tileSize;
+                int oy = cy * tileSize;
+
+                for (Tile tile : tiles) {
+                    List<Rectangle> boxes = tile.getBoundingBoxes();
+
+                    for (int i = 0; i < boxes.size(); i++) {
+                        Rectangle bbox = boxes.get(i);
+
+                        if (bbox.overlaps(rect, ox, oy)) {
+                            hit.setX1(bbox.getX1() + ox);
+                            hit.setY1(bbox.getY1() + oy);
+                            hit.setX2(bbox.getX2() + ox);
+                            hit.setY2(bbox.getY2() + oy);
+
+                            return hit;
+                        }
+                    }
+                }
+            }
+        }
+
+        return null;
     }
 
     /**
      * Detects if a given rectangle overlaps with any door plane in the area.
      *
      * @param rect The rectangle to test.
-     * @return The first {@link Door} that the rectangle collides with, or null if none.
+     * @return The index of the first {@link Door} that the rectangle collides with, or -1 if none.
      */
-    private Door findDoorCollision(Rectangle rect) {
-        return this.doors.stream()
-                .filter(d -> d.getBounds().overlaps(rect))
-                .findFirst()
-                .orElse(null);
+    private int findDoorCollision(Rectangle rect) {
+        for (int i = 0; i < doors.size(); i++) {
+            if (doors.get(i).getBounds().overlaps(rect)) {
+                return i;
+            }
+        }
+
+        return -1;
     }
 }
@@ -9,6 +9,10 @@ import com.mbpolan.retrorealms.services.map.Door;
  */
 public class MoveAction {
 
+    // results that don't refer to a door are immutable, so the same instances are always returned
+    private static final MoveAction MOVED = new MoveAction(Action.MOVED, null);
+    private static final MoveAction COLLISION = new MoveAction(Action.COLLISION, null);
+
     private Action action;
     private Door door;
 
@@ -27,7 +31,7 @@ public class MoveAction {
      * @return A movement action.
      */
     public static MoveAction move() {
-        return new MoveAction(Action.MOVED, null);
+        return MOVED;
     }
 
     /**
@@ -45,7 +49,7 @@ public class MoveAction {
      * @return A movement action.
      */
     public static MoveAction collision() {
-        return new MoveAction(Action.COLLISION, null);
+        return COLLISION;
     }
 
     /**
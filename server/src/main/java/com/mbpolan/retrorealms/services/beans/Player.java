@@ -1,10 +1,13 @@
 package com.mbpolan.retrorealms.services.beans;
 
 import com.mbpolan.retrorealms.beans.responses.AbstractResponse;
+import com.mbpolan.retrorealms.services.clock.GameTimer;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 
+import java.util.BitSet;
+
 /**
  * Representation of a player that's logged into the game.
  *
@@ -13,30 +16,41 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 public class Player {
 
     private int id;
-    private String sessionId;
+    private Long accountId;
+    private volatile String sessionId;
+    private volatile boolean connected;
+    private String resumeToken;
     private String username;
     private String sprite;
-    private int mapArea;
+    private volatile int mapArea;
     private Rectangle plane;
     private int speed;
     private boolean moving;
     private long lastMovement;
     private Direction direction;
+    private int chunk;
+    private BitSet loadedChunks;
+    private int[] nearbyChunks;
+    private GameTimer moveTimer;
     private SimpMessagingTemplate socket;
 
     /**
      * Creates a new player descriptor.
      *
      * @param id The unique ID assigned to this player.
+     * @param accountId The ID number of the player's user account, or null if not known.
      * @param sessionId The player's websocket session ID.
      * @param username The player's username.
      * @param sprite The name of the sprite for the player.
      * @param direction The direction the player is initially facing.
      * @param socket The websocket to communicate over.
      */
-    public Player(int id, String sessionId, String username, String sprite, Direction direction, SimpMessagingTemplate socket) {
+    public Player(int id, Long accountId, String sessionId, String username, String sprite, Direction direction,
+                  SimpMessagingTemplate socket) {
         this.id = id;
+        this.accountId = accountId;
         this.sessionId = sessionId;
+        this.connected = true;
         this.username = username;
         this.sprite = sprite;
         this.socket = socket;
@@ -45,6 +59,9 @@ public class Player {
         this.lastMovement = 0;
         this.direction = direction;
         this.plane = new Rectangle();
+        this.chunk = -1;
+        this.loadedChunks = new BitSet();
+        this.nearbyChunks = new int[0];
         this.setAbsolutePosition(0, 0, 0);
     }
 
@@ -52,10 +69,56 @@ public class Player {
         return id;
     }
 
+    public Long getAccountId() {
+        return accountId;
+    }
+
     public String getSessionId() {
         return sessionId;
     }
 
+    /**
+     * Returns whether the player currently has a connection to the server.
+     *
+     * A player who has lost their connection stays in the game for a while in case they resume their session, but
+     * no messages are sent to them in the meantime.
+     *
+     * @return true if the player is connected, false if not.
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Marks the player as having lost their connection.
+     */
+    public void disconnect() {
+        this.connected = false;
+    }
+
+    /**
+     * Reattaches the player to a new websocket session.
+     *
+     * @param sessionId The player's new websocket session ID.
+     */
+    public void reconnect(String sessionId) {
+        this.sessionId = sessionId;
+        this.connected = true;
+    }
+
+    /**
+     * Returns the token the player can use to resume their session if their connection drops.
+     *
+     * @return The resume token.
+     */
+    public String getResumeToken() {
+        return resumeToken;
+    }
+
+    public void setResumeToken(String resumeToken) {
+        this.resumeToken = resumeToken;
+    }
+
     public String getUsername() {
         return username;
     }
@@ -112,19 +175,109 @@ public class Player {
         this.direction = direction;
     }
 
+    /**
+     * Returns the index of the chunk of tiles the player was last known to be in.
+     *
+     * @return The chunk index, or -1 if none.
+     */
+    public int getChunk() {
+        return chunk;
+    }
+
+    public void setChunk(int chunk) {
+        this.chunk = chunk;
+    }
+
+    /**
+     * Returns the set of chunk indices in the player's current map area that have been sent to them.
+     *
+     * @return The loaded chunks.
+     */
+    public BitSet getLoadedChunks() {
+        return loadedChunks;
+    }
+
+    /**
+     * Returns an array that can hold the indices of chunks around the player.
+     *
+     * The same array is reused each time the player moves into another chunk.
+     *
+     * @param capacity The number of chunk indices the array must be able to hold.
+     * @return An array with at least the requested capacity.
+     */
+    public int[] getNearbyChunks(int capacity) {
+        if (nearbyChunks.length < capacity) {
+            this.nearbyChunks = new int[capacity];
+        }
+
+        return nearbyChunks;
+    }
+
+    /**
+     * Returns the timer that moves the player a single step, which is set again for every step they take.
+     *
+     * @return The movement timer.
+     */
+    public GameTimer getMoveTimer() {
+        return moveTimer;
+    }
+
+    public void setMoveTimer(GameTimer moveTimer) {
+        this.moveTimer = moveTimer;
+    }
+
+    /**
+     * Cancels the player's next step, if one is scheduled and has not started yet.
+     */
+    public void cancelNextMove() {
+        if (moveTimer != null) {
+            moveTimer.cancel();
+        }
+    }
+
+    /**
+     * Forgets all chunks of tiles that were sent to the player, such as when they enter a new map area.
+     */
+    public void resetChunks() {
+        this.chunk = -1;
+        this.loadedChunks.clear();
+    }
+
     /**
      * Sends a message to the player.
      *
      * The message will be dispatched only to the player in question; it will not be broadcast to any
-     * other player in the game.
+     * other player in the game. Messages are dropped while the player is disconnected.
      *
      * @param message The message to send.
      */
     public void send(AbstractResponse message) {
+        if (!connected) {
+            return;
+        }
+
         SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
         headers.setSessionId(sessionId);
         headers.setLeaveMutable(true);
 
         socket.convertAndSendToUser(sessionId, "/queue/game", message, headers.getMessageHeaders());
     }
+
+    /**
+     * Sends a message that has already been encoded to the player.
+     *
+     * @param encoded The encoded message to send.
+     * @see #send(AbstractResponse)
+     */
+    public void send(String encoded) {
+        if (!connected) {
+            return;
+        }
+
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setLeaveMutable(true);
+
+        socket.convertAndSendToUser(sessionId, "/queue/game", encoded, headers.getMessageHeaders());
+    }
 }
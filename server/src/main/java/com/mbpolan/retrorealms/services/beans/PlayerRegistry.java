@@ -0,0 +1,183 @@
+package com.mbpolan.retrorealms.services.beans;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of all players in the game, indexed by their session IDs, ID numbers and usernames.
+ *
+ * Every player in the game is indexed by their ID number and username. Only players who are connected are also
+ * indexed by their session ID; a player whose connection dropped stays in the registry until they either resume
+ * their session or are removed. All lookups and removals take constant time, and the registry can be read safely
+ * from any thread.
+ *
+ * The registry also hands out ID numbers to new players. IDs of removed players are reused, so they stay small and
+ * dense.
+ *
+ * @author mbpolan
+ */
+public class PlayerRegistry {
+
+    private final Map<String, Player> bySession;
+    private final Map<Integer, Player> byId;
+    private final Map<String, Player> byUsername;
+    private final IdAllocator ids;
+
+    public PlayerRegistry() {
+        this.ids = new IdAllocator();
+        this.bySession = new ConcurrentHashMap<>();
+        this.byId = new ConcurrentHashMap<>();
+        this.byUsername = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Allocates an ID number for a new player.
+     *
+     * The ID is released again once the player is removed from the registry.
+     *
+     * @return An unused player ID number.
+     */
+    public int allocateId() {
+        return ids.allocate();
+    }
+
+    /**
+     * Releases an ID number that was allocated for a player who was never added to the registry.
+     *
+     * @param id The unused player ID number.
+     */
+    public void releaseId(int id) {
+        ids.release(id);
+    }
+
+    /**
+     * Adds a connected player to the registry.
+     *
+     * @param player The player to add.
+     */
+    public void add(Player player) {
+        byId.put(player.getId(), player);
+        byUsername.put(player.getUsername(), player);
+        bySession.put(player.getSessionId(), player);
+    }
+
+    /**
+     * Indexes a player under their current session ID, after they have resumed their session.
+     *
+     * @param player The player who resumed their session.
+     */
+    public void bindSession(Player player) {
+        bySession.put(player.getSessionId(), player);
+    }
+
+    /**
+     * Removes the player that belongs to a session from the session index, while keeping them in the registry.
+     *
+     * @param sessionId The player's websocket session ID.
+     * @return The player that was bound to the session, or null if there was none.
+     */
+    public Player unbindSession(String sessionId) {
+        return bySession.remove(sessionId);
+    }
+
+    /**
+     * Removes a player from the registry entirely.
+     *
+     * @param player The player to remove.
+     */
+    public void remove(Player player) {
+        if (byId.remove(player.getId(), player)) {
+            ids.release(player.getId());
+        }
+
+        byUsername.remove(player.getUsername(), player);
+        bySession.remove(player.getSessionId(), player);
+    }
+
+    /**
+     * Returns the connected player that belongs to a session.
+     *
+     * @param sessionId The player's websocket session ID.
+     * @return The player, or null if no connected player has that session.
+     */
+    public Player findBySession(String sessionId) {
+        return bySession.get(sessionId);
+    }
+
+    /**
+     * Returns a player by their ID number.
+     *
+     * @param id The player's ID number.
+     * @return The player, or null if no such player is in the game.
+     */
+    public Player findById(int id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Returns a player by their username.
+     *
+     * @param username The player's username.
+     * @return The player, or null if no such player is in the game.
+     */
+    public Player findByUsername(String username) {
+        return byUsername.get(username);
+    }
+
+    /**
+     * Returns whether a session is bound to a connected player.
+     *
+     * @param sessionId The websocket session ID.
+     * @return true if a player has the session, false otherwise.
+     */
+    public boolean hasSession(String sessionId) {
+        return bySession.containsKey(sessionId);
+    }
+
+    /**
+     * Returns all players in the game, including those whose connection dropped.
+     *
+     * @return An unmodifiable view of all players.
+     */
+    public Collection<Player> getPlayers() {
+        return Collections.unmodifiableCollection(byId.values());
+    }
+
+    /**
+     * Returns the number of players in the game, including those whose connection dropped.
+     *
+     * @return The number of players.
+     */
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Returns an upper bound for the ID numbers of all players in the game.
+     *
+     * @return One more than the highest player ID ever allocated.
+     */
+    public int getIdCapacity() {
+        return ids.getCapacity();
+    }
+
+    /**
+     * Returns the number of player ID numbers that are allocated, including those of players still being added.
+     *
+     * @return The number of IDs in use.
+     */
+    public int getAllocatedIdCount() {
+        return ids.size();
+    }
+
+    /**
+     * Returns the number of players who are connected.
+     *
+     * @return The number of connected players.
+     */
+    public int getSessionCount() {
+        return bySession.size();
+    }
+}
@@ -172,6 +172,20 @@ public class Rectangle {
         return this.x1 < that.x2 && this.x2 > that.x1 && this.y1 < that.y2 && this.y2 > that.y1;
     }
 
+    /**
+     * Tests if this rectangle, translated by some offset, overlaps another either completely or partially.
+     *
+     * This rectangle itself is not modified.
+     *
+     * @param that The rectangle.
+     * @param dx The offset to translate x coordinates of this rectangle by.
+     * @param dy The offset to translate y coordinates of this rectangle by.
+     * @return true if the rectangles overlap, false if not.
+     */
+    public boolean overlaps(Rectangle that, int dx, int dy) {
+        return this.x1 + dx < that.x2 && this.x2 + dx > that.x1 && this.y1 + dy < that.y2 && this.y2 + dy > that.y1;
+    }
+
     /**
      * Multiples the coordinates of this rectangle by some scalar.
      *
@@ -0,0 +1,62 @@
+package com.mbpolan.retrorealms.services.clock;
+
+/**
+ * Source of time for everything that happens in the game.
+ *
+ * All game timing, such as how often players may move and how often game state is sent out, is based on this clock
+ * rather than the system clock. This allows the game to run against a simulated clock that can be stepped forward
+ * faster than real time.
+ *
+ * @author mbpolan
+ */
+public interface GameClock {
+
+    /**
+     * Returns the current time.
+     *
+     * @return The current time, in milliseconds since the epoch.
+     */
+    long millis();
+
+    /**
+     * Schedules a task to run once after a delay.
+     *
+     * @param task The task to run.
+     * @param delayMs The delay before running the task, in milliseconds.
+     * @return A handle that can be used to cancel the task.
+     */
+    ScheduledTask schedule(Runnable task, long delayMs);
+
+    /**
+     * Schedules a task to run once after a delay, in order with other tasks that have the same key.
+     *
+     * Tasks with the same key never run at the same time, and run in the order they become due. This is meant for
+     * work that belongs to a single map area, keyed by the area's ID number, so that the area's tasks do not contend
+     * with each other for its lock.
+     *
+     * @param task The task to run.
+     * @param delayMs The delay before running the task, in milliseconds.
+     * @param key The key that the task is ordered by.
+     * @return A handle that can be used to cancel the task.
+     */
+    ScheduledTask schedule(Runnable task, long delayMs, int key);
+
+    /**
+     * Creates a timer that runs a task each time it goes off.
+     *
+     * The timer does nothing until it is set. Unlike scheduling a task anew each time, setting the timer again
+     * reuses everything the clock needs to keep track of it.
+     *
+     * @param task The task to run.
+     * @return A new {@link GameTimer}.
+     */
+    GameTimer createTimer(Runnable task);
+
+    /**
+     * Schedules a task to run repeatedly, with a fixed delay between the end of one run and the start of the next.
+     *
+     * @param task The task to run.
+     * @param delayMs The delay between runs, in milliseconds.
+     */
+    void scheduleWithFixedDelay(Runnable task, long delayMs);
+}
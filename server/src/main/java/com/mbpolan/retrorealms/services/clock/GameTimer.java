@@ -0,0 +1,28 @@
+package com.mbpolan.retrorealms.services.clock;
+
+/**
+ * Timer that runs the same task whenever it goes off, and can be set again and again without creating any garbage.
+ *
+ * This is meant for tasks that are scheduled over and over, such as a walking player's steps. A timer only ever has
+ * one run pending: setting it while a run is pending moves that run to the new time instead of adding another.
+ * Setting and cancelling a timer must not race with each other, but may race with the timer going off.
+ *
+ * @author mbpolan
+ */
+public interface GameTimer {
+
+    /**
+     * Sets the timer to run its task once after a delay, in order with other tasks that have the same key.
+     *
+     * @param delayMs The delay before running the task, in milliseconds.
+     * @param key The key that the task is ordered by, like with {@link GameClock#schedule(Runnable, long, int)}.
+     */
+    void schedule(long delayMs, int key);
+
+    /**
+     * Cancels the timer's pending run, if it has not started running yet.
+     *
+     * @return true if a run was cancelled, false if none was pending or it is already running.
+     */
+    boolean cancel();
+}
@@ -0,0 +1,16 @@
+package com.mbpolan.retrorealms.services.clock;
+
+/**
+ * Handle to a task that was scheduled on a {@link GameClock}.
+ *
+ * @author mbpolan
+ */
+public interface ScheduledTask {
+
+    /**
+     * Cancels the task, if it has not started running yet.
+     *
+     * @return true if the task was cancelled, false if it has already run, is running, or was already cancelled.
+     */
+    boolean cancel();
+}
@@ -0,0 +1,166 @@
+package com.mbpolan.retrorealms.services.clock;
+
+import java.util.PriorityQueue;
+
+/**
+ * Game clock whose time only moves when it is explicitly advanced.
+ *
+ * Scheduled tasks run on the thread that advances the clock, in the order they are due, with the clock set to the
+ * time each task was due at. This makes simulations deterministic, and lets them run as fast as the game can process
+ * them.
+ *
+ * @author mbpolan
+ */
+public class SimulatedClock implements GameClock {
+
+    private final PriorityQueue<Task> tasks;
+    private long now;
+    private long nextSequence;
+
+    /**
+     * Creates a new simulated clock.
+     *
+     * @param start The initial time, in milliseconds since the epoch.
+     */
+    public SimulatedClock(long start) {
+        this.tasks = new PriorityQueue<>();
+        this.now = start;
+        this.nextSequence = 0;
+    }
+
+    @Override
+    public synchronized long millis() {
+        return now;
+    }
+
+    @Override
+    public synchronized ScheduledTask schedule(Runnable task, long delayMs) {
+        Task scheduled = new Task(task, now + delayMs, 0, nextSequence++);
+        tasks.add(scheduled);
+
+        return () -> cancel(scheduled);
+    }
+
+    @Override
+    public ScheduledTask schedule(Runnable task, long delayMs, int key) {
+        // all tasks already run one at a time, on the thread that advances the clock
+        return schedule(task, delayMs);
+    }
+
+    @Override
+    public GameTimer createTimer(Runnable task) {
+        return new Timer(task);
+    }
+
+    @Override
+    public synchronized void scheduleWithFixedDelay(Runnable task, long delayMs) {
+        tasks.add(new Task(task, now + delayMs, delayMs, nextSequence++));
+    }
+
+    /**
+     * Removes a task that has not run yet.
+     *
+     * @param task The task to remove.
+     * @return true if the task was removed, false if it has already run.
+     */
+    private synchronized boolean cancel(Task task) {
+        return tasks.remove(task);
+    }
+
+    /**
+     * Moves the clock forward, running all tasks that become due along the way.
+     *
+     * @param ms The number of milliseconds to advance by.
+     */
+    public void advance(long ms) {
+        advanceTo(millis() + ms);
+    }
+
+    /**
+     * Moves the clock forward to a given time, running all tasks that become due along the way.
+     *
+     * @param time The time to advance to, in milliseconds since the epoch.
+     */
+    public void advanceTo(long time) {
+        while (true) {
+            Task next;
+
+            synchronized (this) {
+                next = tasks.peek();
+                if (next == null || next.due > time) {
+                    this.now = Math.max(now, time);
+                    return;
+                }
+
+                tasks.poll();
+                this.now = Math.max(now, next.due);
+            }
+
+            // run the task without holding the lock, since it will likely schedule other tasks
+            next.task.run();
+
+            // repeating tasks go back into the queue as they are, so that they don't create garbage on every run
+            if (next.delay > 0) {
+                synchronized (this) {
+                    next.due = now + next.delay;
+                    next.sequence = nextSequence++;
+                    tasks.add(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * A task that is waiting to run.
+     */
+    private static class Task implements Comparable<Task> {
+
+        private final Runnable task;
+        private final long delay;
+        private long due;
+        private long sequence;
+
+        Task(Runnable task, long due, long delay, long sequence) {
+            this.task = task;
+            this.due = due;
+            this.delay = delay;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            // tasks that are due at the same time run in the order they were scheduled
+            int result = Long.compare(due, other.due);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Timer that keeps putting the same task back into the queue.
+     */
+    private class Timer implements GameTimer {
+
+        private final Task task;
+
+        Timer(Runnable task) {
+            this.task = new Task(task, 0, 0, 0);
+        }
+
+        @Override
+        public void schedule(long delayMs, int key) {
+            synchronized (SimulatedClock.this) {
+                // a pending run is moved to the new time, by taking it out of the queue and putting it back in
+                tasks.remove(task);
+
+                task.due = now + delayMs;
+                task.sequence = nextSequence++;
+                tasks.add(task);
+            }
+        }
+
+        @Override
+        public boolean cancel() {
+            return SimulatedClock.this.cancel(task);
+        }
+    }
+}
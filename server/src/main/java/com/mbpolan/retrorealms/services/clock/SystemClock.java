@@ -0,0 +1,165 @@
+package com.mbpolan.retrorealms.services.clock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Game clock that follows the system clock, and runs scheduled tasks on its own threads.
+ *
+ * Keyed tasks are pinned to one of several single-threaded workers by their key, so that all work for a map area
+ * runs in order on the same thread while different areas are processed in parallel. Each worker keeps its tasks in a
+ * {@link TimingWheel}, since there can be thousands of short walk steps pending at once. Tasks without a key, which
+ * are the few periodic tasks that span the whole game, run on a separate timer thread so they are never held up
+ * behind a busy area.
+ *
+ * @author mbpolan
+ */
+public class SystemClock implements GameClock {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SystemClock.class);
+
+    // number of buckets in each worker's timing wheel
+    private static final int WHEEL_SIZE = 512;
+
+    private final TimingWheel[] workers;
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Creates a new system clock.
+     *
+     * @param workers The number of threads that run keyed tasks.
+     * @param tickMs The granularity at which keyed tasks run, in milliseconds.
+     */
+    public SystemClock(int workers, int tickMs) {
+        this.workers = new TimingWheel[Math.max(1, workers)];
+        for (int i = 0; i < this.workers.length; i++) {
+            this.workers[i] = new TimingWheel("game-worker-" + (i + 1), tickMs, WHEEL_SIZE);
+        }
+
+        this.timer = createExecutor("game-timer");
+    }
+
+    /**
+     * Stops all threads, discarding any tasks that have not run yet.
+     */
+    public void shutdown() {
+        for (TimingWheel worker : workers) {
+            worker.shutdown();
+        }
+
+        timer.shutdownNow();
+    }
+
+    @Override
+    public long millis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public ScheduledTask schedule(Runnable task, long delayMs) {
+        ScheduledFuture<?> future = timer.schedule(guard(task), delayMs, TimeUnit.MILLISECONDS);
+        return () -> future.cancel(false);
+    }
+
+    @Override
+    public ScheduledTask schedule(Runnable task, long delayMs, int key) {
+        return workers[Math.floorMod(key, workers.length)].schedule(task, delayMs);
+    }
+
+    @Override
+    public GameTimer createTimer(Runnable task) {
+        return new KeyedTimer(task);
+    }
+
+    @Override
+    public void scheduleWithFixedDelay(Runnable task, long delayMs) {
+        timer.scheduleWithFixedDelay(guard(task), delayMs, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a single-threaded executor for scheduled tasks.
+     *
+     * @param name The name of the executor's thread.
+     * @return The executor.
+     */
+    private static ScheduledExecutorService createExecutor(String name) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+        return executor;
+    }
+
+    /**
+     * Wraps a task so that it logs anything it throws, instead of being silently cancelled.
+     *
+     * Only errors that leave the JVM itself in trouble are passed on, which stops a repeating task from running
+     * again.
+     *
+     * @param task The task to wrap.
+     * @return The wrapped task.
+     */
+    private static Runnable guard(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            }
+
+            catch (VirtualMachineError ex) {
+                LOG.error("Scheduled task failed fatally", ex);
+                throw ex;
+            }
+
+            catch (Throwable ex) {
+                LOG.error("Scheduled task failed", ex);
+            }
+        };
+    }
+
+    /**
+     * Timer whose task runs on the worker for the key it was last scheduled with.
+     *
+     * The timer keeps reusing the same timeout for as long as it is scheduled on the same worker. Only when its key
+     * maps to another worker, such as when a player walks into a map area that runs elsewhere, does it cancel the old
+     * timeout and create a new one.
+     */
+    private class KeyedTimer implements GameTimer {
+
+        private final Runnable task;
+        private TimingWheel.Timeout timeout;
+
+        KeyedTimer(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void schedule(long delayMs, int key) {
+            TimingWheel worker = workers[Math.floorMod(key, workers.length)];
+
+            if (timeout == null || !timeout.isOn(worker)) {
+                if (timeout != null) {
+                    timeout.cancel();
+                }
+
+                this.timeout = worker.createTimeout(task);
+            }
+
+            timeout.schedule(delayMs);
+        }
+
+        @Override
+        public boolean cancel() {
+            return timeout != null && timeout.cancel();
+        }
+    }
+}
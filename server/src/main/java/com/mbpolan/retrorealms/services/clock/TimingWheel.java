@@ -0,0 +1,386 @@
+package com.mbpolan.retrorealms.services.clock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hashed timing wheel that runs tasks on a single thread of its own.
+ *
+ * Time is divided into ticks, and tasks are hashed into a ring of buckets by the tick they are due in. Tasks that are
+ * due further out than one turn of the wheel wait for the remaining number of turns in their bucket. Each tick, only
+ * the tasks in the current bucket are looked at, so adding and cancelling a task both take constant time no matter
+ * how many tasks are pending. The price is that tasks run at tick granularity, and never before they are due.
+ *
+ * Tasks can be added and cancelled from any thread: they are handed to the wheel's thread through a lock-free list
+ * that is linked through the tasks themselves, and only that thread ever touches the buckets. A task can also be
+ * scheduled again once it has run, or while it is still pending, so that a task which is scheduled over and over
+ * never needs anything new to be allocated.
+ *
+ * @author mbpolan
+ */
+public class TimingWheel {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TimingWheel.class);
+
+    // the lowest bits of a timeout's state hold its status, and the rest count how many times it has been scheduled
+    private static final int IDLE = 0;
+    private static final int PENDING = 1;
+    private static final int RUNNING = 2;
+    private static final int CANCELLED = 3;
+    private static final int STATUS = 3;
+    private static final int GENERATION = 4;
+
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    private static final AtomicIntegerFieldUpdater<Timeout> QUEUED =
+            AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "queued");
+
+    private final Bucket[] buckets;
+    private final int mask;
+    private final long tickNanos;
+    private final long startTime;
+    private final Thread thread;
+
+    // most recently scheduled or cancelled timeout, linked to the ones before it until the wheel's thread takes them
+    private final AtomicReference<Timeout> changed;
+
+    // number of ticks that have been processed, only accessed by the wheel's thread
+    private long tick;
+
+    private volatile boolean running;
+
+    /**
+     * Creates and starts a new timing wheel.
+     *
+     * @param name The name of the wheel's thread.
+     * @param tickMs The length of a tick, in milliseconds.
+     * @param size The number of buckets, which is rounded up to a power of two.
+     */
+    public TimingWheel(String name, long tickMs, int size) {
+        int capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+
+        this.buckets = new Bucket[capacity];
+        for (int i = 0; i < capacity; i++) {
+            this.buckets[i] = new Bucket();
+        }
+
+        this.mask = capacity - 1;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMs));
+        this.startTime = System.nanoTime();
+        this.changed = new AtomicReference<>();
+        this.running = true;
+
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Schedules a task to run once after a delay.
+     *
+     * @param task The task to run.
+     * @param delayMs The delay before running the task, in milliseconds.
+     * @return A handle that can be used to cancel the task.
+     */
+    public ScheduledTask schedule(Runnable task, long delayMs) {
+        Timeout timeout = createTimeout(task);
+        timeout.schedule(delayMs);
+
+        return timeout;
+    }
+
+    /**
+     * Creates a timeout that runs a task on this wheel each time it is scheduled.
+     *
+     * @param task The task to run.
+     * @return A new {@link Timeout}, which is not scheduled yet.
+     */
+    Timeout createTimeout(Runnable task) {
+        return new Timeout(this, task);
+    }
+
+    /**
+     * Stops the wheel's thread, discarding any tasks that have not run yet.
+     */
+    public void shutdown() {
+        this.running = false;
+        this.thread.interrupt();
+    }
+
+    /**
+     * Main loop of the wheel's thread.
+     */
+    private void run() {
+        while (running) {
+            // wait until the current tick has passed
+            long sleepNanos = (tick + 1) * tickNanos - elapsedNanos();
+
+            if (sleepNanos > 0) {
+                try {
+                    Thread.sleep(TimeUnit.NANOSECONDS.toMillis(sleepNanos + 999_999));
+                }
+
+                catch (InterruptedException ex) {
+                    continue;
+                }
+            }
+
+            placeChanged();
+
+            buckets[(int) (tick & mask)].expire();
+            tick++;
+        }
+    }
+
+    /**
+     * Returns how much time has passed since the wheel was started.
+     *
+     * @return The elapsed time, in nanoseconds.
+     */
+    private long elapsedNanos() {
+        return System.nanoTime() - startTime;
+    }
+
+    /**
+     * Hands a timeout that was scheduled or cancelled to the wheel's thread.
+     *
+     * @param timeout The timeout.
+     */
+    private void markChanged(Timeout timeout) {
+        // a timeout that is already waiting to be looked at will be seen in its latest state anyway
+        if (!QUEUED.compareAndSet(timeout, 0, 1)) {
+            return;
+        }
+
+        Timeout head;
+        do {
+            head = changed.get();
+            timeout.nextChanged = head;
+        } while (!changed.compareAndSet(head, timeout));
+    }
+
+    /**
+     * Moves timeouts that were scheduled or cancelled into the buckets they are now due in, or out of the wheel.
+     */
+    private void placeChanged() {
+        Timeout timeout = changed.getAndSet(null);
+
+        // the list comes out newest first, so turn it around to place timeouts in the order they were changed
+        Timeout ordered = null;
+        while (timeout != null) {
+            Timeout next = timeout.nextChanged;
+            timeout.nextChanged = ordered;
+            ordered = timeout;
+            timeout = next;
+        }
+
+        while (ordered != null) {
+            Timeout next = ordered.nextChanged;
+            ordered.nextChanged = null;
+
+            // from here on, any further change hands the timeout over again
+            ordered.queued = 0;
+            place(ordered);
+
+            ordered = next;
+        }
+    }
+
+    /**
+     * Takes a timeout out of its bucket, and puts it back into the bucket it is due in if it's still pending.
+     *
+     * @param timeout The timeout to place.
+     */
+    private void place(Timeout timeout) {
+        if (timeout.bucket != null) {
+            timeout.bucket.remove(timeout);
+        }
+
+        int state = timeout.state;
+        if ((state & STATUS) != PENDING) {
+            return;
+        }
+
+        // a task that is already overdue runs in the current tick
+        long due = Math.max(tick, timeout.deadline / tickNanos);
+
+        timeout.placed = state;
+        timeout.rounds = (due - tick) / buckets.length;
+        buckets[(int) (due & mask)].add(timeout);
+    }
+
+    /**
+     * A ring of tasks that hash to the same tick, linked together so that any of them can be removed in place.
+     */
+    private static class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+
+            if (tail == null) {
+                head = timeout;
+            }
+
+            else {
+                tail.next = timeout;
+            }
+
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            }
+
+            else {
+                timeout.prev.next = timeout.next;
+            }
+
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            }
+
+            else {
+                timeout.next.prev = timeout.prev;
+            }
+
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        void expire() {
+            Timeout timeout = head;
+
+            while (timeout != null) {
+                Timeout next = timeout.next;
+
+                // tasks due in a later turn of the wheel stay where they are for now
+                if (timeout.rounds > 0) {
+                    timeout.rounds--;
+                }
+
+                else {
+                    remove(timeout);
+                    timeout.run();
+                }
+
+                timeout = next;
+            }
+        }
+    }
+
+    /**
+     * A task that is waiting in the wheel, or that can be scheduled to.
+     */
+    static class Timeout implements ScheduledTask {
+
+        private final TimingWheel wheel;
+        private final Runnable task;
+
+        // status and generation, changed by any thread
+        volatile int state;
+
+        // whether the timeout is waiting to be placed by the wheel's thread
+        volatile int queued;
+
+        private volatile long deadline;
+
+        // link to the timeout that was changed before this one, owned by whoever is handing it to the wheel
+        private Timeout nextChanged;
+
+        // position in the wheel, and the state it was placed in, only accessed by the wheel's thread
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+        private long rounds;
+        private int placed;
+
+        Timeout(TimingWheel wheel, Runnable task) {
+            this.wheel = wheel;
+            this.task = task;
+            this.state = IDLE;
+        }
+
+        /**
+         * Returns if this timeout runs on a given wheel.
+         *
+         * @param wheel The wheel.
+         * @return true if the timeout belongs to the wheel, false if not.
+         */
+        boolean isOn(TimingWheel wheel) {
+            return this.wheel == wheel;
+        }
+
+        /**
+         * Schedules the task to run after a delay, moving its run if one is already pending.
+         *
+         * @param delayMs The delay before running the task, in milliseconds.
+         */
+        void schedule(long delayMs) {
+            this.deadline = wheel.elapsedNanos() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMs));
+
+            // a new generation keeps a run that was placed for an earlier deadline from going off
+            int current;
+            do {
+                current = state;
+            } while (!STATE.compareAndSet(this, current, ((current & ~STATUS) + GENERATION) | PENDING));
+
+            wheel.markChanged(this);
+        }
+
+        @Override
+        public boolean cancel() {
+            int current;
+            do {
+                current = state;
+
+                if ((current & STATUS) != PENDING) {
+                    return false;
+                }
+            } while (!STATE.compareAndSet(this, current, (current & ~STATUS) | CANCELLED));
+
+            // take the timeout out of its bucket, so that long delays don't keep it around
+            wheel.markChanged(this);
+            return true;
+        }
+
+        void run() {
+            // the timeout might have been cancelled or scheduled again since it was placed
+            int generation = placed & ~STATUS;
+            if (!STATE.compareAndSet(this, placed, generation | RUNNING)) {
+                return;
+            }
+
+            try {
+                task.run();
+            }
+
+            catch (VirtualMachineError ex) {
+                // the JVM can't be trusted to keep running tasks anymore
+                LOG.error("Scheduled task failed fatally", ex);
+                throw ex;
+            }
+
+            catch (Throwable ex) {
+                // any other error only affects this task, and must not take down the thread that runs all others
+                LOG.error("Scheduled task failed", ex);
+            }
+
+            finally {
+                // unless the task scheduled itself again while it ran
+                STATE.compareAndSet(this, generation | RUNNING, generation | IDLE);
+            }
+        }
+    }
+}
@@ -12,7 +12,7 @@ public class GameMap {
     private int width;
     private int height;
     private int tileSize;
-    private TilesetMetadata tileMetadata;
+    private TileIndex tileIndex;
     private List<Layer> layers;
     private List<Area> areas;
     private List<Door> doors;
@@ -33,12 +33,12 @@ public class GameMap {
         return tileSize;
     }
 
-    public TilesetMetadata getTileMetadata() {
-        return tileMetadata;
+    public TileIndex getTileIndex() {
+        return tileIndex;
     }
 
     public Tile createEmptyTile() {
-        return new Tile(tileMetadata.getFirstId() - 1, null);
+        return new Tile(0, null);
     }
 
     public List<Layer> getLayers() {
@@ -57,7 +57,7 @@ public class GameMap {
         private int width;
         private int height;
         private int tileSize;
-        private TilesetMetadata tileMetadata;
+        private TileIndex tileIndex;
         private List<Layer> layers;
         private List<Area> areas;
         private List<Door> doors;
@@ -84,8 +84,8 @@ public class GameMap {
             return this;
         }
 
-        public Builder tileMetadata(TilesetMetadata tileMetadata) {
-            this.tileMetadata = tileMetadata;
+        public Builder tileIndex(TileIndex tileIndex) {
+            this.tileIndex = tileIndex;
             return this;
         }
 
@@ -109,7 +109,7 @@ public class GameMap {
             gameMap.width = this.width;
             gameMap.height = this.height;
             gameMap.tileSize = this.tileSize;
-            gameMap.tileMetadata = this.tileMetadata;
+            gameMap.tileIndex = this.tileIndex;
             gameMap.doors = this.doors;
             gameMap.layers = this.layers;
             gameMap.areas = this.areas;
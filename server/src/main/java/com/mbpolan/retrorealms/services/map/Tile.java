@@ -3,11 +3,15 @@ package com.mbpolan.retrorealms.services.map;
 import com.mbpolan.retrorealms.services.beans.Rectangle;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Descriptor for a single tile on the map.
  *
+ * A tile is shared by every position on the map where it is placed, so its bounding boxes are relative to the
+ * origin of the tile and must not be modified.
+ *
  * @author mbpolan
  */
 public class Tile {
@@ -17,13 +21,13 @@ public class Tile {
     private List<Rectangle> boundingBoxes;
 
     public Tile(int id, Rectangle frame) {
-        this(id, frame, new ArrayList<>());
+        this(id, frame, Collections.emptyList());
     }
 
     public Tile(int id, Rectangle frame, List<Rectangle> boundingBoxes) {
         this.id = id;
         this.frame = frame;
-        this.boundingBoxes = boundingBoxes;
+        this.boundingBoxes = Collections.unmodifiableList(new ArrayList<>(boundingBoxes));
     }
 
     public int getId() {
@@ -0,0 +1,87 @@
+package com.mbpolan.retrorealms.services.map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Index of tiles across all tilesets used on a map, keyed by their global tile ID.
+ *
+ * Each tileset claims a range of global tile IDs starting from its first ID. Tiles are stored in a dense array
+ * so that resolving a global tile ID to its descriptor takes constant time.
+ *
+ * @author mbpolan
+ */
+public class TileIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TileIndex.class);
+
+    // the upper bits of a global tile ID are flags that describe how the tile is flipped
+    private static final int FLIPPED_HORIZONTALLY = 0x80000000;
+    private static final int FLIPPED_VERTICALLY = 0x40000000;
+    private static final int FLIPPED_DIAGONALLY = 0x20000000;
+    private static final int FLIP_MASK = ~(FLIPPED_HORIZONTALLY | FLIPPED_VERTICALLY | FLIPPED_DIAGONALLY);
+
+    private List<TilesetMetadata> tilesets;
+    private Tile[] tiles;
+
+    /**
+     * Creates an index of tiles.
+     *
+     * @param tilesets The tilesets to index, which must not have overlapping ranges of tile IDs.
+     */
+    public TileIndex(List<TilesetMetadata> tilesets) {
+        this.tilesets = tilesets;
+
+        int lastId = tilesets.stream()
+                .mapToInt(TilesetMetadata::getLastId)
+                .max()
+                .orElse(0);
+
+        // global tile ID 0 is reserved for an empty tile, so it's never assigned
+        this.tiles = new Tile[lastId + 1];
+        for (TilesetMetadata tileset : tilesets) {
+            for (int id = tileset.getFirstId(); id <= tileset.getLastId(); id++) {
+                if (tiles[id] != null) {
+                    throw new IllegalArgumentException(String.format("Tileset %s overlaps another at tile ID %d",
+                            tileset.getName(), id));
+                }
+
+                tiles[id] = tileset.get(id);
+            }
+        }
+    }
+
+    /**
+     * Returns all tilesets in this index.
+     *
+     * @return A read-only list of tilesets.
+     */
+    public List<TilesetMetadata> getTilesets() {
+        return Collections.unmodifiableList(tilesets);
+    }
+
+    /**
+     * Returns a {@link Tile} descriptor for a global tile ID.
+     *
+     * Any flip flags that are set on the ID are ignored.
+     *
+     * @param gid The global tile ID, as it appears in layer data.
+     * @return The tile descriptor, or null if the ID denotes an empty tile or is not found.
+     */
+    public Tile get(int gid) {
+        int id = gid & FLIP_MASK;
+        if (id == 0) {
+            return null;
+        }
+
+        Tile tile = id < tiles.length ? tiles[id] : null;
+        if (tile == null) {
+            LOG.warn("Cannot find tile in metadata with ID {}", id);
+        }
+
+        return tile;
+    }
+}
@@ -1,11 +1,8 @@
 package com.mbpolan.retrorealms.services.map;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Map;
 
 /**
  * Descriptor for a set of tile metadata.
@@ -14,12 +11,10 @@ import java.util.Map;
  */
 public class TilesetMetadata {
 
-    private static final Logger LOG = LoggerFactory.getLogger(TilesetMetadata.class);
-
     private String name;
     private String imageSourcePath;
     private int firstId;
-    private Map<Integer, Tile> tiles;
+    private Tile[] tiles;
 
     /**
      * Creates a new tileset metadata descriptor.
@@ -27,9 +22,9 @@ public class TilesetMetadata {
      * @param name The name assigned to this tileset.
      * @param imageSourcePath The static content path on the server where the image for the tileset is available.
      * @param firstId The ID number of the first tile in this tileset.
-     * @param tiles A map of tile ID numbers to their descriptors.
+     * @param tiles The tile descriptors, where each tile's ID number is its index offset by the first ID.
      */
-    public TilesetMetadata(String name, String imageSourcePath, int firstId, Map<Integer, Tile> tiles) {
+    public TilesetMetadata(String name, String imageSourcePath, int firstId, Tile[] tiles) {
         this.name = name;
         this.imageSourcePath = imageSourcePath;
         this.firstId = firstId;
@@ -63,13 +58,22 @@ public class TilesetMetadata {
         return firstId;
     }
 
+    /**
+     * Returns the ID of the last tile in the tileset.
+     *
+     * @return The ID of the tile.
+     */
+    public int getLastId() {
+        return firstId + tiles.length - 1;
+    }
+
     /**
      * Returns a read-only view of all tiles.
      *
      * @return Metadata for all tiles.
      */
     public Collection<Tile> getTiles() {
-        return Collections.unmodifiableCollection(tiles.values());
+        return Collections.unmodifiableList(Arrays.asList(tiles));
     }
 
     /**
@@ -79,10 +83,7 @@ public class TilesetMetadata {
      * @return The tile descriptor, or null if not found.
      */
     public Tile get(int id) {
-        if (!tiles.containsKey(id) && id >= firstId) {
-            LOG.warn("Cannot find tile in metadata with ID {}", id);
-        }
-
-        return tiles.get(id);
+        int index = id - firstId;
+        return index >= 0 && index < tiles.length ? tiles[index] : null;
     }
 }
@@ -14,7 +14,6 @@ import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -68,10 +67,10 @@ public class TmxMapLoader {
             List<Area> areas = parseAreas(mapType);
 
             // parse the tilesets associated with this map and extract the tileset metadata path
-            TilesetMetadata metadata = parseTileset(mapType, tileSize);
+            TileIndex tileIndex = parseTilesets(mapType, tileSize);
 
             // process each layer of the map
-            List<Layer> layers = parseLayers(mapType, metadata);
+            List<Layer> layers = parseLayers(mapType, tileIndex);
 
             // parse all doors on the map
             List<Door> doors = parseDoors(mapType, areas, tileSize);
@@ -81,7 +80,7 @@ public class TmxMapLoader {
                     .doors(doors)
                     .height(mapType.getHeight())
                     .layers(layers)
-                    .tileMetadata(metadata)
+                    .tileIndex(tileIndex)
                     .tileSize(tileSize)
                     .width(mapType.getWidth())
                     .build();
@@ -160,32 +159,49 @@ public class TmxMapLoader {
      *
      * @param mapType The TMX map to parse.
      * @param tileSize The square size of a tile.
-     * @return A {@link TilesetData} describing tilesets in use.
+     * @return A {@link TileIndex} describing tilesets in use.
      * @throws IOException If an error occurs while parsing.
      */
-    private TilesetMetadata parseTileset(com.mbpolan.retrorealms.tmx.Map mapType, int tileSize) throws IOException {
+    private TileIndex parseTilesets(com.mbpolan.retrorealms.tmx.Map mapType, int tileSize) throws IOException {
+        List<TilesetMetadata> tilesets = new ArrayList<>();
+
         // parse and valiadate map tilesets
-        TilesetType tileset = mapType.getTileset();
+        for (TilesetType tileset : mapType.getTileset()) {
+            // like the map itself, every tileset must have square tiles
+            if (tileset.getTilewidth() != tileset.getTileheight()) {
+                throw new IOException(String.format("Tileset %s must have square tiles (found: %dx%d)",
+                        tileset.getName(), tileset.getTilewidth(), tileset.getTileheight()));
+            }
 
-        // we only support tilesets with tiles that match those of the map
-        if (mapType.getTileheight() != mapType.getTilewidth()) {
-            throw new IOException(String.format("Only square tile sizes are supported (found: %dx%d", mapType.getTilewidth(), mapType.getTileheight()));
-        }
+            // we only support tilesets with tiles that match those of the map
+            if (tileset.getTilewidth() != tileSize) {
+                throw new IOException(String.format("Tileset %s must have %dx%d tiles (found: %dx%d)",
+                        tileset.getName(), tileSize, tileSize, tileset.getTilewidth(), tileset.getTileheight()));
+            }
 
-        // parse and validate the tileset source image
-        ImageType image = tileset.getImage();
-        Path tilesetSource = dataPath.resolve(Paths.get(image.getSource()));
+            // parse and validate the tileset source image
+            ImageType image = tileset.getImage();
+            Path tilesetSource = dataPath.resolve(Paths.get(image.getSource()));
 
-        // the image must be located under the data/assets directory, relative to the server
-        // TODO
+            // the image must be located under the data/assets directory, relative to the server
+            // TODO
 
-        // parse the tiles that belong to this tileset
-        Map<Integer, Tile> tiles = parseTiles(tileset, tileSize);
+            // parse the tiles that belong to this tileset
+            Tile[] tiles = parseTiles(tileset, tileSize);
 
-        // make all paths relative to the data directory in the form of URL path components
-        String relImagePath = String.format("/%s", dataPath.relativize(tilesetSource).toString().replace("\\", "/"));
+            // make all paths relative to the data directory in the form of URL path components
+            String relImagePath = String.format("/%s", dataPath.relativize(tilesetSource).toString().replace("\\", "/"));
 
-        return new TilesetMetadata(tileset.getName(), relImagePath, tileset.getFirstgid(), tiles);
+            tilesets.add(new TilesetMetadata(tileset.getName(), relImagePath, tileset.getFirstgid(), tiles));
+        }
+
+        try {
+            return new TileIndex(tilesets);
+        }
+
+        catch (IllegalArgumentException ex) {
+            throw new IOException("Invalid tilesets", ex);
+        }
     }
 
     /**
@@ -193,16 +209,16 @@ public class TmxMapLoader {
      *
      * @param tileset The tileset to parse.
      * @param tileSize The square size of a tile.
-     * @return A map of tile ID numbers to their descriptors.
+     * @return An array of tile descriptors, ordered by their ID numbers.
      */
-    private Map<Integer, Tile> parseTiles(TilesetType tileset, int tileSize) {
+    private Tile[] parseTiles(TilesetType tileset, int tileSize) {
         List<TileType> tileTypes = tileset.getTile();
         ListIterator<TileType> nextTile = tileTypes.listIterator();
 
         // start with the first tile ID in the tileset
         int gid = tileset.getFirstgid();
 
-        Map<Integer, Tile> tiles = new HashMap<>();
+        Tile[] tiles = new Tile[tileset.getTilecount()];
 
         // iterate based on the count of tiles that should be in this tileset
         // reason being that there might not be metadata for every single tile
@@ -214,8 +230,8 @@ public class TmxMapLoader {
             int y = (i / tileset.getColumns()) * tileSize;
             Rectangle frame = new Rectangle(x, y, x + tileset.getTilewidth(), y + tileset.getTileheight());
 
-            // does the local tile ID match the global tile ID?
-            if (nextTile.hasNext() && tileTypes.get(nextTile.nextIndex()).getId() + 1 == gid) {
+            // does the local tile ID match this tile?
+            if (nextTile.hasNext() && tileTypes.get(nextTile.nextIndex()).getId() == i) {
                 TileType tileType = nextTile.next();
 
                 // compute bounding boxes for the tile based on the metadata
@@ -230,10 +246,10 @@ public class TmxMapLoader {
                 tile = new Tile(gid, frame);
             }
 
-            tiles.put(gid, tile);
+            tiles[i] = tile;
         }
 
-        LOG.info("Parsed {} tiles in tileset {}", tiles.size(), tileset.getName());
+        LOG.info("Parsed {} tiles in tileset {}", tiles.length, tileset.getName());
         return tiles;
     }
 
@@ -241,11 +257,11 @@ public class TmxMapLoader {
      * Parses the various layers of the map.
      *
      * @param mapType The TMX map to parse.
-     * @param tileMetadata Metadata for the tilesets used in the map.
+     * @param tileIndex Index of tiles in the tilesets used in the map.
      * @return A list of {@link Layer}s describing each map layer.
      * @throws IOException If an error occurs while parsing.
      */
-    private List<Layer> parseLayers(com.mbpolan.retrorealms.tmx.Map mapType, TilesetMetadata tileMetadata) throws IOException {
+    private List<Layer> parseLayers(com.mbpolan.retrorealms.tmx.Map mapType, TileIndex tileIndex) throws IOException {
         List<Layer> layers = new ArrayList<>();
 
         for (LayerType layer : mapType.getLayer()) {
@@ -260,9 +276,15 @@ public class TmxMapLoader {
             List<List<Tile>> tiles = new ArrayList<>();
             for (String row : data.getValue().split("\n")) {
                 if (!row.trim().isEmpty()) {
-                    tiles.add(Arrays.stream(row.split(","))
-                            .map(id -> tileMetadata.get(Integer.parseInt(id)))
-                            .collect(Collectors.toList()));
+                    String[] ids = row.split(",");
+                    List<Tile> rowTiles = new ArrayList<>(ids.length);
+
+                    // global tile IDs are unsigned, since flip flags may occupy the sign bit
+                    for (String id : ids) {
+                        rowTiles.add(tileIndex.get(Integer.parseUnsignedInt(id.trim())));
+                    }
+
+                    tiles.add(rowTiles);
                 }
             }
 
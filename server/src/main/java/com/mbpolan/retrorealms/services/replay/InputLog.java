@@ -0,0 +1,79 @@
+package com.mbpolan.retrorealms.services.replay;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constants and helpers that describe the binary format of an input log.
+ *
+ * A log starts with a header of a magic number and a format version. Each record that follows is prefixed by its
+ * length, and a length of zero marks the end of the log, since the unused tail of a memory-mapped file is zeroed.
+ * A record holds its timestamp, its type, the player's session ID and an optional argument. Strings are stored as
+ * a two byte length followed by UTF-8 bytes, with a length of -1 for null.
+ *
+ * @author mbpolan
+ */
+final class InputLog {
+
+    static final int MAGIC = 0x52524950;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+
+    private InputLog() {
+    }
+
+    /**
+     * Returns the number of bytes needed to store a string.
+     *
+     * @param bytes The encoded string, or null.
+     * @return The number of bytes.
+     */
+    static int sizeOf(byte[] bytes) {
+        return 2 + (bytes == null ? 0 : bytes.length);
+    }
+
+    /**
+     * Encodes a string for storing in a log.
+     *
+     * @param value The string, or null.
+     * @return The encoded string, or null.
+     */
+    static byte[] encode(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes an encoded string to a buffer.
+     *
+     * @param buffer The buffer to write to.
+     * @param bytes The encoded string, or null.
+     */
+    static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putShort((short) -1);
+        }
+
+        else {
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    /**
+     * Reads a string from a buffer.
+     *
+     * @param buffer The buffer to read from.
+     * @return The string, or null.
+     */
+    static String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,103 @@
+package com.mbpolan.retrorealms.services.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads input records from a log file that was written by {@link InputLogWriter}.
+ *
+ * @author mbpolan
+ */
+public class InputLogReader implements Closeable {
+
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    /**
+     * Opens a log file for reading.
+     *
+     * @param path The path to the log file.
+     * @throws IOException If the file cannot be opened, or is not an input log.
+     */
+    public InputLogReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+
+        map(0);
+
+        if (size < InputLog.HEADER_SIZE || window.getInt() != InputLog.MAGIC || window.getInt() != InputLog.VERSION) {
+            channel.close();
+            throw new IOException(String.format("Not a supported input log: %s", path));
+        }
+    }
+
+    /**
+     * Reads the next record from the log.
+     *
+     * @return The next record, or null if the end of the log has been reached.
+     * @throws IOException If the file cannot be read.
+     */
+    public InputRecord next() throws IOException {
+        if (!ensureAvailable(4)) {
+            return null;
+        }
+
+        // a zero length marks the end of a log that wasn't closed cleanly
+        int length = window.getInt();
+        if (length <= 0) {
+            return null;
+        }
+
+        // a record that was cut short by a crash is ignored
+        else if (!ensureAvailable(length)) {
+            return null;
+        }
+
+        long timestamp = window.getLong();
+        InputRecord.Type type = InputRecord.Type.fromOrdinal(window.get());
+        String sessionId = InputLog.getString(window);
+        String argument = InputLog.getString(window);
+
+        return new InputRecord(timestamp, type, sessionId, argument);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Makes sure that a number of bytes can be read from the current window, mapping a new one if needed.
+     *
+     * @param bytes The number of bytes that need to be read.
+     * @return true if the bytes are available, false if the end of the file has been reached.
+     * @throws IOException If the file cannot be mapped.
+     */
+    private boolean ensureAvailable(int bytes) throws IOException {
+        if (window.remaining() < bytes) {
+            map(windowStart + window.position());
+        }
+
+        return window.remaining() >= bytes;
+    }
+
+    /**
+     * Maps a window of the file starting at a given position.
+     *
+     * @param position The position in the file.
+     * @throws IOException If the file cannot be mapped.
+     */
+    private void map(long position) throws IOException {
+        this.windowStart = position;
+        this.window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                Math.min(size - position, WINDOW_SIZE));
+    }
+}
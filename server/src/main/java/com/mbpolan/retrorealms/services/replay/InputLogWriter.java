@@ -0,0 +1,80 @@
+package com.mbpolan.retrorealms.services.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends input records to a memory-mapped log file.
+ *
+ * The file is mapped in segments of a fixed size, and a new segment is mapped once the current one fills up, so that
+ * appending a record is only a handful of memory writes.
+ *
+ * @author mbpolan
+ */
+public class InputLogWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final int segmentSize;
+    private long segmentStart;
+    private MappedByteBuffer segment;
+
+    /**
+     * Creates a new log file, replacing any existing file at the same path.
+     *
+     * @param path The path to the log file.
+     * @param segmentSize The number of bytes to map at a time.
+     * @throws IOException If the file cannot be created.
+     */
+    public InputLogWriter(Path path, int segmentSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.segmentSize = segmentSize;
+        this.segmentStart = 0;
+        this.segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+
+        segment.putInt(InputLog.MAGIC);
+        segment.putInt(InputLog.VERSION);
+    }
+
+    /**
+     * Appends a record to the log.
+     *
+     * @param record The record to append.
+     * @throws IOException If a new segment of the file cannot be mapped.
+     */
+    public synchronized void append(InputRecord record) throws IOException {
+        byte[] sessionId = InputLog.encode(record.getSessionId());
+        byte[] argument = InputLog.encode(record.getArgument());
+        int length = 8 + 1 + InputLog.sizeOf(sessionId) + InputLog.sizeOf(argument);
+
+        // make sure there's room for the record, and for the zero length that marks the end of the log
+        if (segment.remaining() < length + 8) {
+            segmentStart += segment.position();
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, segmentStart, Math.max(segmentSize, length + 8));
+        }
+
+        segment.putInt(length);
+        segment.putLong(record.getTimestamp());
+        segment.put((byte) record.getType().ordinal());
+        InputLog.putString(segment, sessionId);
+        InputLog.putString(segment, argument);
+    }
+
+    /**
+     * Flushes all records to disk, and trims the unused tail of the file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        long end = segmentStart + segment.position();
+
+        segment.force();
+        channel.truncate(end);
+        channel.close();
+    }
+}
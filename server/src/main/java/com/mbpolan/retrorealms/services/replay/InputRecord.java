@@ -0,0 +1,62 @@
+package com.mbpolan.retrorealms.services.replay;
+
+/**
+ * A single input from a player, as stored in an input log.
+ *
+ * @author mbpolan
+ */
+public class InputRecord {
+
+    /**
+     * Enumeration of the kinds of inputs that are recorded.
+     */
+    public enum Type {
+        LOGIN,
+        MOVE_START,
+        MOVE_STOP,
+        DISCONNECT,
+        RESUME;
+
+        private static final Type[] VALUES = values();
+
+        static Type fromOrdinal(int ordinal) {
+            return VALUES[ordinal];
+        }
+    }
+
+    private long timestamp;
+    private Type type;
+    private String sessionId;
+    private String argument;
+
+    /**
+     * Creates a new input record.
+     *
+     * @param timestamp The time the input was received, in milliseconds since the epoch.
+     * @param type The kind of input.
+     * @param sessionId The websocket session ID of the player who sent the input.
+     * @param argument The username for logins and resumes, the direction for movements, or null for other inputs.
+     */
+    public InputRecord(long timestamp, Type type, String sessionId, String argument) {
+        this.timestamp = timestamp;
+        this.type = type;
+        this.sessionId = sessionId;
+        this.argument = argument;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public String getArgument() {
+        return argument;
+    }
+}
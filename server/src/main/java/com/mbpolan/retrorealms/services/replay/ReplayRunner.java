@@ -0,0 +1,246 @@
+package com.mbpolan.retrorealms.services.replay;
+
+import com.mbpolan.retrorealms.repositories.entities.UserAccount;
+import com.mbpolan.retrorealms.services.AuthService;
+import com.mbpolan.retrorealms.services.GameService;
+import com.mbpolan.retrorealms.services.beans.Direction;
+import com.mbpolan.retrorealms.services.clock.GameClock;
+import com.mbpolan.retrorealms.services.clock.SimulatedClock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a log of recorded player inputs against the game, without any network connections.
+ *
+ * The runner is enabled by starting the server with {@code --replay.file=<path>}. Inputs are replayed at the speed
+ * they were recorded, or faster with {@code --replay.speed=<multiplier>}; a speed of 0 replays them as fast as
+ * possible. Once the log has been replayed, a summary of how long the game took to handle the inputs is logged and
+ * the server shuts down, unless {@code --replay.exit=false} is given.
+ *
+ * If the server is running on a simulated clock, the clock is stepped forward to the time of each input instead of
+ * waiting for it, so the replay is deterministic and runs as fast as the game can keep up. Since player movements
+ * then run on the replay thread itself, the memory that thread allocates shows how much garbage the game produces.
+ *
+ * @author mbpolan
+ */
+@Component
+@ConditionalOnProperty("replay.file")
+public class ReplayRunner implements CommandLineRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReplayRunner.class);
+
+    // prefix for replayed session IDs, so that they never clash with real players
+    private static final String SESSION_PREFIX = "replay-";
+
+    @Autowired
+    private GameService gameService;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private GameClock clock;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Value("${replay.file}")
+    private String file;
+
+    @Value("${replay.speed:1.0}")
+    private double speed;
+
+    @Value("${replay.exit:true}")
+    private boolean exit;
+
+    @Override
+    public void run(String... args) throws Exception {
+        SimulatedClock simulated = clock instanceof SimulatedClock ? (SimulatedClock) clock : null;
+        long clockStart = clock.millis();
+
+        if (simulated != null) {
+            LOG.info("Replaying inputs from {} on a simulated clock", file);
+        }
+
+        else {
+            LOG.info("Replaying inputs from {} at {}x speed", file, speed);
+        }
+
+        long[] latencies = new long[1024];
+        int count = 0;
+        long maxLag = 0;
+        long firstTimestamp = -1;
+        long lastTimestamp = -1;
+        long cpuStart = getProcessCpuTime();
+        long allocatedStart = getThreadAllocatedBytes();
+        long start = System.nanoTime();
+
+        try (InputLogReader reader = new InputLogReader(Paths.get(file))) {
+            InputRecord record;
+
+            while ((record = reader.next()) != null) {
+                if (firstTimestamp < 0) {
+                    firstTimestamp = record.getTimestamp();
+                }
+
+                lastTimestamp = record.getTimestamp();
+
+                // step the clock to when this input was received, running everything that happened in between
+                if (simulated != null) {
+                    simulated.advanceTo(clockStart + lastTimestamp - firstTimestamp);
+                }
+
+                // otherwise wait until this input is due, relative to when the replay started
+                else if (speed > 0) {
+                    long due = start + (long) (TimeUnit.MILLISECONDS.toNanos(lastTimestamp - firstTimestamp) / speed);
+                    long wait = due - System.nanoTime();
+
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+
+                    else {
+                        maxLag = Math.max(maxLag, -wait);
+                    }
+                }
+
+                long before = System.nanoTime();
+                dispatch(record);
+
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+
+                latencies[count++] = System.nanoTime() - before;
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        long cpu = getProcessCpuTime() - cpuStart;
+        long allocated = getThreadAllocatedBytes() - allocatedStart;
+
+        Arrays.sort(latencies, 0, count);
+        LOG.info("Replayed {} inputs spanning {} ms in {} ms", count, Math.max(0, lastTimestamp - firstTimestamp),
+                TimeUnit.NANOSECONDS.toMillis(elapsed));
+        LOG.info("Input handling time: p50 {} us, p99 {} us, max {} us; max lag behind schedule {} ms",
+                toMicros(percentile(latencies, count, 0.5)), toMicros(percentile(latencies, count, 0.99)),
+                toMicros(count > 0 ? latencies[count - 1] : 0), TimeUnit.NANOSECONDS.toMillis(maxLag));
+
+        if (cpuStart >= 0) {
+            LOG.info("Process CPU time during replay: {} ms", TimeUnit.NANOSECONDS.toMillis(cpu));
+        }
+
+        if (allocatedStart >= 0) {
+            LOG.info("Memory allocated by the replay thread: {} KB, {} bytes per input", allocated / 1024,
+                    count > 0 ? allocated / count : 0);
+        }
+
+        if (exit) {
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    /**
+     * Feeds a single recorded input to the game.
+     *
+     * @param record The input to replay.
+     */
+    private void dispatch(InputRecord record) {
+        String sessionId = SESSION_PREFIX + record.getSessionId();
+
+        switch (record.getType()) {
+            case LOGIN:
+                UserAccount account = authService.getAccount(record.getArgument());
+                if (account != null) {
+                    gameService.addPlayer(sessionId, account);
+                }
+
+                else {
+                    LOG.warn("Cannot replay login for unknown user {}", record.getArgument());
+                }
+
+                break;
+
+            case MOVE_START:
+                gameService.movePlayer(sessionId, Direction.fromValue(record.getArgument()));
+                break;
+
+            case MOVE_STOP:
+                gameService.stopPlayer(sessionId);
+                break;
+
+            case DISCONNECT:
+                gameService.disconnectPlayer(sessionId);
+                break;
+
+            case RESUME:
+                // tokens are issued anew during the replay, so use whichever one the player was given this time
+                String token = gameService.getResumeToken(record.getArgument());
+                if (token != null) {
+                    gameService.resumePlayer(sessionId, token);
+                }
+
+                else {
+                    LOG.warn("Cannot replay resume for player {} who is not in the game", record.getArgument());
+                }
+
+                break;
+        }
+    }
+
+    /**
+     * Returns a percentile from a sorted array of values.
+     *
+     * @param values The sorted values.
+     * @param count The number of values in the array.
+     * @param percentile The percentile, between 0 and 1.
+     * @return The value at the percentile, or 0 if there are no values.
+     */
+    private static long percentile(long[] values, int count, double percentile) {
+        return count == 0 ? 0 : values[Math.min(count - 1, (int) (count * percentile))];
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * Returns the memory allocated by the current thread so far, if the JVM reports it.
+     *
+     * @return The allocated memory in bytes, or -1 if not available.
+     */
+    private static long getThreadAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        return threads instanceof com.sun.management.ThreadMXBean
+                ? ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId())
+                : -1;
+    }
+
+    /**
+     * Returns the CPU time used by the whole process, if the JVM reports it.
+     *
+     * @return The CPU time in nanoseconds, or -1 if not available.
+     */
+    private static long getProcessCpuTime() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+
+        return os instanceof com.sun.management.OperatingSystemMXBean
+                ? ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime()
+                : -1;
+    }
+}
@@ -0,0 +1,25 @@
+package com.mbpolan.retrorealms.settings;
+
+/**
+ * Settings that control how user accounts are cached in memory.
+ *
+ * @author mbpolan
+ */
+public class AccountSettings {
+
+    private int cacheSize;
+    private int cacheTtl;
+
+    public AccountSettings(int cacheSize, int cacheTtl) {
+        this.cacheSize = cacheSize;
+        this.cacheTtl = cacheTtl;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public int getCacheTtl() {
+        return cacheTtl;
+    }
+}
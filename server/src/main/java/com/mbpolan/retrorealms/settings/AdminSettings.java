@@ -0,0 +1,25 @@
+package com.mbpolan.retrorealms.settings;
+
+/**
+ * Settings that control access to administrative operations.
+ *
+ * @author mbpolan
+ */
+public class AdminSettings {
+
+    private boolean enabled;
+    private boolean localOnly;
+
+    public AdminSettings(boolean enabled, boolean localOnly) {
+        this.enabled = enabled;
+        this.localOnly = localOnly;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isLocalOnly() {
+        return localOnly;
+    }
+}
@@ -0,0 +1,31 @@
+package com.mbpolan.retrorealms.settings;
+
+/**
+ * Settings that control how map areas are managed at runtime.
+ *
+ * @author mbpolan
+ */
+public class AreaSettings {
+
+    private int idleTimeout;
+    private int chunkSize;
+    private int chunkRadius;
+
+    public AreaSettings(int idleTimeout, int chunkSize, int chunkRadius) {
+        this.idleTimeout = idleTimeout;
+        this.chunkSize = chunkSize;
+        this.chunkRadius = chunkRadius;
+    }
+
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getChunkRadius() {
+        return chunkRadius;
+    }
+}
@@ -0,0 +1,43 @@
+package com.mbpolan.retrorealms.settings;
+
+/**
+ * Settings that control how game state updates are sent out to players.
+ *
+ * @author mbpolan
+ */
+public class DispatchSettings {
+
+    private int workers;
+    private int deadline;
+    private int minInterval;
+    private int maxInterval;
+    private int busyPlayers;
+
+    public DispatchSettings(int workers, int deadline, int minInterval, int maxInterval, int busyPlayers) {
+        this.workers = workers;
+        this.deadline = deadline;
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.busyPlayers = busyPlayers;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public int getDeadline() {
+        return deadline;
+    }
+
+    public int getMinInterval() {
+        return minInterval;
+    }
+
+    public int getMaxInterval() {
+        return maxInterval;
+    }
+
+    public int getBusyPlayers() {
+        return busyPlayers;
+    }
+}
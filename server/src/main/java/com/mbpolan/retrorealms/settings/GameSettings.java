@@ -8,12 +8,88 @@ package com.mbpolan.retrorealms.settings;
 public class GameSettings {
 
     private PlayerSettings players;
+    private AreaSettings areas;
+    private PersistenceSettings persistence;
+    private LoginSettings logins;
+    private AccountSettings accounts;
+    private SnapshotSettings snapshots;
+    private RecordingSettings recording;
+    private LockSettings locks;
+    private DispatchSettings dispatch;
+    private OverloadSettings overload;
+    private SchedulerSettings scheduler;
+    private ThreadSettings threads;
+    private AdminSettings admin;
 
-    public GameSettings(PlayerSettings players) {
+    public GameSettings(PlayerSettings players, AreaSettings areas, PersistenceSettings persistence,
+                        LoginSettings logins, AccountSettings accounts, SnapshotSettings snapshots,
+                        RecordingSettings recording, LockSettings locks, DispatchSettings dispatch,
+                        OverloadSettings overload, SchedulerSettings scheduler, ThreadSettings threads,
+                        AdminSettings admin) {
         this.players = players;
+        this.areas = areas;
+        this.persistence = persistence;
+        this.logins = logins;
+        this.accounts = accounts;
+        this.snapshots = snapshots;
+        this.recording = recording;
+        this.locks = locks;
+        this.dispatch = dispatch;
+        this.overload = overload;
+        this.scheduler = scheduler;
+        this.threads = threads;
+        this.admin = admin;
     }
 
     public PlayerSettings getPlayers() {
         return players;
     }
+
+    public AreaSettings getAreas() {
+        return areas;
+    }
+
+    public PersistenceSettings getPersistence() {
+        return persistence;
+    }
+
+    public LoginSettings getLogins() {
+        return logins;
+    }
+
+    public AccountSettings getAccounts() {
+        return accounts;
+    }
+
+    public SnapshotSettings getSnapshots() {
+        return snapshots;
+    }
+
+    public RecordingSettings getRecording() {
+        return recording;
+    }
+
+    public LockSettings getLocks() {
+        return locks;
+    }
+
+    public DispatchSettings getDispatch() {
+        return dispatch;
+    }
+
+    public OverloadSettings getOverload() {
+        return overload;
+    }
+
+    public SchedulerSettings getScheduler() {
+        return scheduler;
+    }
+
+    public ThreadSettings getThreads() {
+        return threads;
+    }
+
+    public AdminSettings getAdmin() {
+        return admin;
+    }
 }
@@ -0,0 +1,25 @@
+package com.mbpolan.retrorealms.settings;
+
+/**
+ * Settings that control how locks on map areas are profiled.
+ *
+ * @author mbpolan
+ */
+public class LockSettings {
+
+    private boolean profiling;
+    private int slowHoldThreshold;
+
+    public LockSettings(boolean profiling, int slowHoldThreshold) {
+        this.profiling = profiling;
+        this.slowHoldThreshold = slowHoldThreshold;
+    }
+
+    public boolean isProfiling() {
+        return profiling;
+    }
+
+    public int getSlowHoldThreshold() {
+        return slowHoldThreshold;
+    }
+}
@@ -0,0 +1,25 @@
+package com.mbpolan.retrorealms.settings;
+
+/**
+ * Settings that control how login requests are processed.
+ *
+ * @author mbpolan
+ */
+public class LoginSettings {
+
+    private int workers;
+    private int queueSize;
+
+    public LoginSettings(int workers, int queueSize) {
+        this.workers = workers;
+        this.queueSize = queueSize;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+}
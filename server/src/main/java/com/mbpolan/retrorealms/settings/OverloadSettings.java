@@ -0,0 +1,31 @@
+package com.mbpolan.retrorealms.settings;
+
+/**
+ * Settings that control how the server sheds load when it falls behind.
+ *
+ * @author mbpolan
+ */
+public class OverloadSettings {
+
+    private int window;
+    private int degradeLag;
+    private int shedLag;
+
+    public OverloadSettings(int window, int degradeLag, int shedLag) {
+        this.window = window;
+        this.degradeLag = degradeLag;
+        this.shedLag = shedLag;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public int getDegradeLag() {
+        return degradeLag;
+    }
+
+    public int getShedLag() {
+        return shedLag;
+    }
+}
@@ -0,0 +1,19 @@
+package com.mbpolan.retrorealms.settings;
+
+/**
+ * Settings that control how game state is written to the database.
+ *
+ * @author mbpolan
+ */
+public class PersistenceSettings {
+
+    private int flushInterval;
+
+    public PersistenceSettings(int flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public int getFlushInterval() {
+        return flushInterval;
+    }
+}
@@ -9,10 +9,18 @@ public class PlayerSettings {
 
     private int walkDelay;
     private int speedMultiplier;
+    private int resumeGrace;
+    private int spawnArea;
+    private int spawnX;
+    private int spawnY;
 
-    public PlayerSettings(int walkDelay, int speedMultiplier) {
+    public PlayerSettings(int walkDelay, int speedMultiplier, int resumeGrace, int spawnArea, int spawnX, int spawnY) {
         this.walkDelay = walkDelay;
         this.speedMultiplier = speedMultiplier;
+        this.resumeGrace = resumeGrace;
+        this.spawnArea = spawnArea;
+        this.spawnX = spawnX;
+        this.spawnY = spawnY;
     }
 
     public int getWalkDelay() {
@@ -22,4 +30,20 @@ public class PlayerSettings {
     public int getSpeedMultiplier() {
         return speedMultiplier;
     }
+
+    public int getResumeGrace() {
+        return resumeGrace;
+    }
+
+    public int getSpawnArea() {
+        return spawnArea;
+    }
+
+    public int getSpawnX() {
+        return spawnX;
+    }
+
+    public int getSpawnY() {
+        return spawnY;
+    }
 }
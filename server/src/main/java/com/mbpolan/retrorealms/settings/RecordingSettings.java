@@ -0,0 +1,31 @@
+package com.mbpolan.retrorealms.settings;
+
+/**
+ * Settings that control whether player inputs are recorded for later replay.
+ *
+ * @author mbpolan
+ */
+public class RecordingSettings {
+
+    private boolean enabled;
+    private String file;
+    private int segmentSize;
+
+    public RecordingSettings(boolean enabled, String file, int segmentSize) {
+        this.enabled = enabled;
+        this.file = file;
+        this.segmentSize = segmentSize;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+}
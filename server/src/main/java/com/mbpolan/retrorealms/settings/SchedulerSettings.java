@@ -0,0 +1,25 @@
+package com.mbpolan.retrorealms.settings;
+
+/**
+ * Settings that control the threads that run scheduled game tasks.
+ *
+ * @author mbpolan
+ */
+public class SchedulerSettings {
+
+    private int workers;
+    private int tick;
+
+    public SchedulerSettings(int workers, int tick) {
+        this.workers = workers;
+        this.tick = tick;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public int getTick() {
+        return tick;
+    }
+}
@@ -0,0 +1,25 @@
+package com.mbpolan.retrorealms.settings;
+
+/**
+ * Settings that control how snapshots of the world are saved for crash recovery.
+ *
+ * @author mbpolan
+ */
+public class SnapshotSettings {
+
+    private String directory;
+    private int interval;
+
+    public SnapshotSettings(String directory, int interval) {
+        this.directory = directory;
+        this.interval = interval;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+}
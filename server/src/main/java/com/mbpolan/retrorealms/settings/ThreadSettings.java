@@ -0,0 +1,19 @@
+package com.mbpolan.retrorealms.settings;
+
+/**
+ * Settings that control what kind of threads blocking work runs on.
+ *
+ * @author mbpolan
+ */
+public class ThreadSettings {
+
+    private boolean virtual;
+
+    public ThreadSettings(boolean virtual) {
+        this.virtual = virtual;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+}
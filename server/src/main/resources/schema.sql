@@ -10,4 +10,6 @@ CREATE TABLE USER_ACCOUNT (
   Y INT NOT NULL,
   SPEED INT NOT NULL,
   LAST_LOGIN TIMESTAMP
-);
\ No newline at end of file
+);
+
+CREATE UNIQUE INDEX IDX_USER_ACCOUNT_USERNAME ON USER_ACCOUNT (USERNAME);
\ No newline at end of file
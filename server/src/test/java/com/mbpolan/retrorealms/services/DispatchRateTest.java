@@ -0,0 +1,70 @@
+package com.mbpolan.retrorealms.services;
+
+import com.mbpolan.retrorealms.services.beans.Direction;
+import com.mbpolan.retrorealms.services.beans.Player;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that map areas with moving players are sent game state updates at least as often as they used to be.
+ *
+ * @author mbpolan
+ */
+public class DispatchRateTest {
+
+    // how often every map area was sent game state updates before the rate depended on activity
+    private static final int BASELINE_INTERVAL = 200;
+
+    private TestGame game;
+    private GameService gameService;
+
+    @Before
+    public void setUp() throws Exception {
+        this.game = new TestGame();
+        this.gameService = game.getGameService();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        game.close();
+    }
+
+    @Test
+    public void testSingleWalkerIsUpdatedAtLeastAsOftenAsBaseline() {
+        assertTrue(gameService.addPlayer("alice", game.createAccount(1, "alice")));
+        Player player = game.getPlayers().findBySession("alice");
+        int walkDelay = game.getSettings().getPlayerWalkDelay();
+
+        // walk to the right edge of the area, so the player has the whole width to walk back across
+        gameService.movePlayer("alice", Direction.RIGHT);
+        while (player.isMoving()) {
+            game.getClock().advance(walkDelay);
+        }
+
+        gameService.stopPlayer("alice");
+        game.getClock().advance(walkDelay);
+
+        // walk back, and count updates while the player is in the middle of their walk; nothing else is sent to
+        // them then, since they already have every chunk they pass through
+        gameService.movePlayer("alice", Direction.LEFT);
+        game.getClock().advance(2 * walkDelay);
+
+        long sentBefore = game.getSentMessageCount();
+        long start = game.getClock().millis();
+
+        while (player.isMoving()) {
+            game.getClock().advance(walkDelay);
+        }
+
+        // the last step may have stopped the player, which is a message of its own
+        long updates = game.getSentMessageCount() - sentBefore - 1;
+        long elapsed = game.getClock().millis() - start;
+
+        assertTrue(elapsed >= 10 * BASELINE_INTERVAL);
+        assertTrue(String.format("Sent %d updates in %d ms", updates, elapsed),
+                updates >= elapsed / BASELINE_INTERVAL);
+    }
+}
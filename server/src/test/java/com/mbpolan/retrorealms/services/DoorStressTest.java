@@ -0,0 +1,223 @@
+package com.mbpolan.retrorealms.services;
+
+import com.mbpolan.retrorealms.repositories.entities.UserAccount;
+import com.mbpolan.retrorealms.services.beans.Direction;
+import com.mbpolan.retrorealms.services.beans.MapArea;
+import com.mbpolan.retrorealms.services.beans.Player;
+import com.mbpolan.retrorealms.services.beans.PlayerRegistry;
+import com.mbpolan.retrorealms.services.beans.Rectangle;
+import com.mbpolan.retrorealms.services.map.Door;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that players passing through the same doors in opposite directions never deadlock or get lost.
+ *
+ * @author mbpolan
+ */
+public class DoorStressTest {
+
+    // minimum number of times each player is expected to pass through a door
+    private static final int CROSSINGS = 800;
+
+    // number of times the clock is stepped forward, by one walking step each time
+    private static final int TICKS = 12000;
+
+    private TestGame game;
+    private GameService gameService;
+    private PlayerRegistry players;
+
+    // the doors between the first two map areas, in either direction
+    private Door doorOut;
+    private Door doorBack;
+
+    @Before
+    public void setUp() throws Exception {
+        this.game = new TestGame();
+        this.gameService = game.getGameService();
+        this.players = game.getPlayers();
+
+        MapArea first = game.getMapService().getMapArea(0);
+        this.doorOut = first.getDoors().get(0);
+
+        MapArea second = game.getMapService().getMapArea(doorOut.getToAreaId());
+        this.doorBack = second.getDoors().stream()
+                .filter(d -> d.getToAreaId() == first.getId())
+                .findFirst()
+                .orElse(null);
+
+        assertNotNull(doorBack);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (game != null) {
+            game.close();
+        }
+    }
+
+    @Test
+    public void testPlayersCrossingDoorsInOppositeDirections() throws Exception {
+        // each player starts where the other one will arrive
+        addPlayer("alice", 1, doorBack.getToAreaId(), doorBack.getToX(), doorBack.getToY());
+        addPlayer("bob", 2, doorOut.getToAreaId(), doorOut.getToX(), doorOut.getToY());
+
+        // the players take turns with the clock in lockstep, but within each step both of them send inputs and
+        // advance the clock at the same time, so either player's movements can run on either thread
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Walker alice = new Walker("alice", barrier, failure);
+        Walker bob = new Walker("bob", barrier, failure);
+        alice.other = bob;
+        bob.other = alice;
+
+        alice.start();
+        bob.start();
+        alice.join(TimeUnit.SECONDS.toMillis(30));
+        bob.join(TimeUnit.SECONDS.toMillis(30));
+
+        if (alice.isAlive() || bob.isAlive()) {
+            // the game can't be shut down while its map areas are stuck locked
+            this.game = null;
+            fail("Players deadlocked while crossing doors");
+        }
+
+        if (failure.get() != null) {
+            throw new AssertionError("Player failed to cross doors", failure.get());
+        }
+
+        assertTrue(alice.crossings >= CROSSINGS);
+        assertTrue(bob.crossings >= CROSSINGS);
+
+        assertInExactlyOneArea(players.findByUsername("alice"));
+        assertInExactlyOneArea(players.findByUsername("bob"));
+    }
+
+    private void addPlayer(String username, long accountId, int area, int x, int y) {
+        UserAccount account = game.createAccount(accountId, username);
+        account.setMapArea(area);
+        account.setX(x);
+        account.setY(y);
+
+        assertTrue(gameService.addPlayer(username, account));
+    }
+
+    private void assertInExactlyOneArea(Player player) {
+        assertNotNull(player);
+
+        int found = 0;
+        for (MapArea area : game.getMapService().getMapAreas()) {
+            area.lock();
+
+            if (area.hasPlayer(player)) {
+                assertEquals(area.getId(), player.getMapArea());
+                found++;
+            }
+
+            area.unlock();
+        }
+
+        assertEquals(1, found);
+    }
+
+    private static Direction getDirectionToDoor(Player player, Door door) {
+        Rectangle plane = player.plane();
+        Rectangle bounds = door.getBounds();
+
+        if (bounds.getY2() <= plane.getY1()) {
+            return Direction.UP;
+        }
+
+        else if (bounds.getY1() >= plane.getY2()) {
+            return Direction.DOWN;
+        }
+
+        return bounds.getX2() <= plane.getX1() ? Direction.LEFT : Direction.RIGHT;
+    }
+
+    /**
+     * Thread that walks a player back and forth through the doors.
+     *
+     * After arriving in an area, the player first steps aside to the far edge of the door, so that they never stand
+     * where the other player is about to arrive. Both players then step into their doors at the same time, so that
+     * they are relocated in opposite directions at once. Like a client, the walker stops the player once they arrive.
+     * Should only one of them make it through, the other one goes on alone so that the two fall back into step.
+     */
+    private class Walker extends Thread {
+
+        private final String sessionId;
+        private final CyclicBarrier barrier;
+        private final AtomicReference<Throwable> failure;
+        private Walker other;
+        private volatile boolean inLane;
+        private volatile int area;
+        private int crossings;
+
+        Walker(String sessionId, CyclicBarrier barrier, AtomicReference<Throwable> failure) {
+            super("walker-" + sessionId);
+            this.sessionId = sessionId;
+            this.barrier = barrier;
+            this.failure = failure;
+
+            // a deadlocked walker must not keep the test run from finishing
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                Player player = players.findBySession(sessionId);
+                long start = game.getClock().millis();
+                int step = game.getSettings().getPlayerWalkDelay();
+                this.area = player.getMapArea();
+
+                for (int tick = 1; tick <= TICKS; tick++) {
+                    if (player.getMapArea() != area) {
+                        gameService.stopPlayer(sessionId);
+                        area = player.getMapArea();
+                        inLane = false;
+                        crossings++;
+                    }
+
+                    Door door = area == doorOut.getSrcAreaId() ? doorOut : doorBack;
+                    int laneX = door.getBounds().getX2() - player.plane().getWidth();
+
+                    if (!inLane && player.plane().getX1() < laneX) {
+                        gameService.movePlayer(sessionId, Direction.RIGHT);
+                    }
+
+                    else if (!inLane) {
+                        gameService.stopPlayer(sessionId);
+                        inLane = true;
+                    }
+
+                    barrier.await(10, TimeUnit.SECONDS);
+
+                    // neither walker changes its state until the next step, so both agree on whether to go ahead, but a
+                    // player left waiting in the other one's area has to step through first to clear their lane
+                    if (inLane && (other.inLane || other.area == area)) {
+                        gameService.movePlayer(sessionId, getDirectionToDoor(player, door));
+                    }
+
+                    game.getClock().advanceTo(start + tick * step);
+                    barrier.await(10, TimeUnit.SECONDS);
+                }
+            }
+
+            catch (Throwable ex) {
+                failure.compareAndSet(null, ex);
+                barrier.reset();
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.mbpolan.retrorealms.services;
+
+import com.mbpolan.retrorealms.beans.responses.MapChunkResponse;
+import com.mbpolan.retrorealms.services.beans.MapArea;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that map areas materialized while the map is being reloaded are never left with the old map data.
+ *
+ * @author mbpolan
+ */
+public class MapReloadTest {
+
+    // the area that is materialized during the reload, and the tile that the reload changes in its first layer
+    private static final int AREA = 1;
+    private static final int OLD_TILE = 3;
+    private static final int NEW_TILE = 4;
+
+    private TestGame game;
+    private MapService map;
+    private Path changedMap;
+
+    // the thread whose first materialized area is held up until the reload is done
+    private volatile Thread materializer;
+    private final AtomicBoolean held = new AtomicBoolean();
+    private final CountDownLatch building = new CountDownLatch(1);
+    private final CountDownLatch reloaded = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws Exception {
+        this.game = new TestGame(dir -> new TestGame.TestSettingsService(dir) {
+
+            @Override
+            public int getAreaChunkSize() {
+                // map areas are only ever built, not locked, while their chunk size is looked up
+                if (Thread.currentThread() == materializer && held.compareAndSet(false, true)) {
+                    building.countDown();
+                    await(reloaded);
+                }
+
+                return super.getAreaChunkSize();
+            }
+        });
+
+        this.map = game.getMapService();
+
+        // the same map, with the top left tile of the area's first layer replaced
+        Path original = Paths.get(game.getSettings().getMapSettings().getFile());
+        String contents = new String(Files.readAllBytes(original), StandardCharsets.UTF_8);
+        String changed = contents.replaceFirst("<data encoding=\"csv\">\n" + OLD_TILE + ",",
+                "<data encoding=\"csv\">\n" + NEW_TILE + ",");
+
+        assertFalse(contents.equals(changed));
+
+        this.changedMap = Files.createTempFile("retrorealms-map", ".tmx");
+        Files.write(changedMap, changed.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        reloaded.countDown();
+        game.close();
+        Files.deleteIfExists(changedMap);
+    }
+
+    @Test
+    public void testAreaMaterializedDuringReloadUsesNewMap() throws Exception {
+        assertTrue(map.getMapAreas().stream().noneMatch(a -> a.getId() == AREA));
+
+        // start building the area from the current map, and keep it from being added until the map is reloaded
+        AtomicReference<MapArea> materialized = new AtomicReference<>();
+        this.materializer = new Thread(() -> materialized.set(map.getMapArea(AREA)), "materializer");
+        materializer.start();
+
+        assertTrue(building.await(10, TimeUnit.SECONDS));
+
+        game.getSettings().getMapSettings().setFile(changedMap.toString());
+        map.reload(a -> {}).get(10, TimeUnit.SECONDS);
+
+        reloaded.countDown();
+        materializer.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(materializer.isAlive());
+
+        // the area that was handed out is the one that stays in the game, and it has the new tile
+        MapArea area = map.getMapArea(AREA);
+        assertSame(area, materialized.get());
+        assertFalse(area.isRetired());
+        assertEquals(NEW_TILE, getFirstTile(area));
+    }
+
+    private static int getFirstTile(MapArea area) {
+        AtomicReference<MapChunkResponse> chunk = new AtomicReference<>();
+        area.getEncodedChunk(0, r -> {
+            chunk.set((MapChunkResponse) r);
+            return "";
+        });
+
+        List<List<Integer>> layers = chunk.get().getLayers();
+        return layers.get(0).get(0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        }
+
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
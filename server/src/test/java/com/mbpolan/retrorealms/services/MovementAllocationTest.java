@@ -0,0 +1,189 @@
+package com.mbpolan.retrorealms.services;
+
+import com.mbpolan.retrorealms.services.beans.Direction;
+import com.mbpolan.retrorealms.services.beans.Player;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests that players walking around, and the game state updates sent out about them, create little garbage.
+ *
+ * Every step and every update runs on the test thread, since it's the one advancing the simulated clock, so all
+ * allocations can be attributed to it.
+ *
+ * @author mbpolan
+ */
+public class MovementAllocationTest {
+
+    // number of times the player walks from one end of their lane to the other and back
+    private static final int LAPS = 50;
+
+    // number of steps at either end of the lane that are not measured, since starting and stopping sends messages
+    private static final int MARGIN = 2;
+
+    // most bytes a single step may allocate on average when no game state updates are sent: steps reuse the player's
+    // movement timer, so this only leaves room for the game's own periodic tasks that run on the same thread
+    private static final long MAX_BYTES_PER_STEP = 8;
+
+    // most bytes a single step may allocate on average, including its share of game state updates; what remains is
+    // the encoded update and message headers for each send, while building a bean for each changed player and
+    // encoding them with Jackson pushes a step past 1200 bytes
+    private static final long MAX_BYTES_PER_STEP_WITH_UPDATES = 768;
+
+    private TestGame game;
+    private GameService gameService;
+    private com.sun.management.ThreadMXBean threads;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+
+        this.threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (game != null) {
+            game.close();
+        }
+    }
+
+    @Test
+    public void testStepsAllocateNothing() throws Exception {
+        // game state updates are never sent, so that only the steps themselves are measured
+        this.game = new TestGame(dir -> new TestGame.TestSettingsService(dir) {
+
+            @Override
+            public int getDispatchMinInterval() {
+                return Integer.MAX_VALUE;
+            }
+        });
+
+        this.gameService = game.getGameService();
+
+        Measurement walking = walkLaps();
+        assertEquals("Game state updates were sent", 0, walking.messages);
+
+        long perStep = walking.bytes / walking.steps;
+        assertTrue(String.format("Walking allocated %d bytes per step, more than %d", perStep, MAX_BYTES_PER_STEP),
+                perStep <= MAX_BYTES_PER_STEP);
+    }
+
+    @Test
+    public void testWalkingWithUpdatesAllocatesLittle() throws Exception {
+        this.game = new TestGame();
+        this.gameService = game.getGameService();
+
+        Measurement walking = walkLaps();
+
+        // make sure that every game state update due while walking went out, so they were all measured as well
+        assertTrue(String.format("Sent %d game state updates, fewer than %d", walking.messages,
+                walking.dueMessages), walking.messages >= walking.dueMessages);
+
+        long perStep = walking.bytes / walking.steps;
+        assertTrue(String.format("Walking allocated %d bytes per step, more than %d", perStep,
+                MAX_BYTES_PER_STEP_WITH_UPDATES), perStep <= MAX_BYTES_PER_STEP_WITH_UPDATES);
+    }
+
+    /**
+     * Adds a player to the game, and has them walk back and forth across the area while measuring their steps.
+     *
+     * @return What was measured.
+     */
+    private Measurement walkLaps() {
+        assertTrue(gameService.addPlayer("alice", game.createAccount(1, "alice")));
+        Player player = game.getPlayers().findBySession("alice");
+
+        // find out how far the player can walk from one wall to the other, which also loads every class and chunk
+        // along the way
+        walk(player, Direction.RIGHT, Integer.MAX_VALUE);
+        int lane = walk(player, Direction.LEFT, Integer.MAX_VALUE);
+        assertTrue("Player has no room to walk", lane > 2 * MARGIN + 10);
+
+        Measurement walking = new Measurement();
+        int measured = lane - 2 * MARGIN;
+
+        for (int i = 0; i < LAPS * 2; i++) {
+            Direction direction = i % 2 == 0 ? Direction.RIGHT : Direction.LEFT;
+
+            gameService.movePlayer("alice", direction);
+            step(MARGIN);
+
+            long sentBefore = game.getSentMessageCount();
+            long before = allocatedBytes();
+
+            step(measured);
+
+            walking.bytes += allocatedBytes() - before;
+            walking.messages += game.getSentMessageCount() - sentBefore;
+            walking.steps += measured;
+
+            // an area with a single walker is updated at least once every maximum interval, but a lap does not have
+            // to line up with those updates, so only whole intervals within it are sure to contain one
+            walking.dueMessages += (long) measured * game.getSettings().getPlayerWalkDelay()
+                    / game.getSettings().getDispatchMaxInterval();
+
+            step(MARGIN);
+            gameService.stopPlayer("alice");
+            step(1);
+        }
+
+        return walking;
+    }
+
+    /**
+     * Walks a player in a direction until they are blocked, or have taken a number of steps.
+     *
+     * @param player The player.
+     * @param direction The direction to walk in.
+     * @param limit The most steps to take.
+     * @return The number of steps taken.
+     */
+    private int walk(Player player, Direction direction, int limit) {
+        gameService.movePlayer(player.getSessionId(), direction);
+
+        int steps = 0;
+        while (steps < limit && player.isMoving()) {
+            step(1);
+            steps++;
+        }
+
+        gameService.stopPlayer(player.getSessionId());
+        step(1);
+
+        return steps;
+    }
+
+    /**
+     * Advances the clock by a number of walking steps.
+     *
+     * @param steps The number of steps.
+     */
+    private void step(int steps) {
+        game.getClock().advance((long) steps * game.getSettings().getPlayerWalkDelay());
+    }
+
+    private long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Allocations and messages counted over the measured steps.
+     */
+    private static class Measurement {
+
+        private long bytes;
+        private long messages;
+        private long steps;
+        private long dueMessages;
+    }
+}
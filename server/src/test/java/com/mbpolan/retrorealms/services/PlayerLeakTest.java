@@ -0,0 +1,170 @@
+package com.mbpolan.retrorealms.services;
+
+import com.mbpolan.retrorealms.services.beans.MapArea;
+import com.mbpolan.retrorealms.services.beans.Player;
+import com.mbpolan.retrorealms.services.beans.PlayerRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that players who leave the game don't leave anything behind.
+ *
+ * @author mbpolan
+ */
+public class PlayerLeakTest {
+
+    // enough players that leaking even a few small objects for each of them shows up in the heap
+    private static final int ROUNDS = 5000;
+
+    // players added before the baseline is taken, so that anything created lazily already exists
+    private static final int WARMUP_ROUNDS = 500;
+
+    // how much more of the heap may be in use after all rounds than before them
+    private static final long MAX_HEAP_GROWTH = 1024 * 1024;
+
+    private TestGame game;
+    private GameService gameService;
+    private PlayerRegistry players;
+
+    @Before
+    public void setUp() throws Exception {
+        this.game = new TestGame();
+        this.gameService = game.getGameService();
+        this.players = game.getPlayers();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        game.close();
+    }
+
+    @Test
+    public void testExpiredPlayersReleaseTheirIds() {
+        expirePlayers(0, WARMUP_ROUNDS);
+        Baseline baseline = new Baseline();
+
+        expirePlayers(WARMUP_ROUNDS, ROUNDS);
+
+        baseline.assertRestored();
+        assertGameIsEmpty();
+        assertNull(gameService.getResumeToken("alice"));
+    }
+
+    @Test
+    public void testReplacedSessionsReleaseTheirIds() {
+        replaceSessions(0, WARMUP_ROUNDS);
+        Baseline baseline = new Baseline();
+
+        replaceSessions(WARMUP_ROUNDS, ROUNDS);
+
+        baseline.assertRestored();
+        assertGameIsEmpty();
+    }
+
+    /**
+     * Adds players one at a time, and has each of them disconnect until their resume grace period runs out.
+     *
+     * @param first The number of the first round.
+     * @param rounds The number of players to add.
+     */
+    private void expirePlayers(int first, int rounds) {
+        for (int i = first; i < first + rounds; i++) {
+            String sessionId = "session-" + i;
+            assertTrue(gameService.addPlayer(sessionId, game.createAccount(1, "alice")));
+
+            // the same ID is handed out every time, since the previous player gave it back
+            Player player = players.findBySession(sessionId);
+            assertNotNull(player);
+            assertEquals(0, player.getId());
+
+            gameService.disconnectPlayer(sessionId);
+            game.getClock().advance(game.getSettings().getPlayerResumeGrace() + 1);
+        }
+    }
+
+    /**
+     * Logs two players in again and again, replacing their previous sessions, and has both leave at the end.
+     *
+     * @param first The number of the first round.
+     * @param rounds The number of times to log each player in.
+     */
+    private void replaceSessions(int first, int rounds) {
+        for (int i = first; i < first + rounds; i++) {
+            // logging in again ends the previous session, whether or not its connection already dropped
+            String sessionId = "session-" + i;
+            assertTrue(gameService.addPlayer(sessionId, game.createAccount(1, "alice")));
+            assertTrue(gameService.addPlayer(sessionId + "-b", game.createAccount(2, "bob")));
+
+            if (i % 2 == 0) {
+                gameService.disconnectPlayer(sessionId);
+            }
+
+            assertEquals(2, players.size());
+            assertEquals(2, players.getAllocatedIdCount());
+            assertEquals(2, players.getIdCapacity());
+
+            game.getClock().advance(100);
+        }
+
+        int last = first + rounds - 1;
+        gameService.disconnectPlayer("session-" + last);
+        gameService.disconnectPlayer("session-" + last + "-b");
+        game.getClock().advance(game.getSettings().getPlayerResumeGrace() + 1);
+    }
+
+    private void assertGameIsEmpty() {
+        assertEquals(0, players.size());
+        assertEquals(0, players.getSessionCount());
+        assertEquals(0, players.getAllocatedIdCount());
+
+        for (MapArea area : game.getMapService().getMapAreas()) {
+            assertTrue(area.isEmpty());
+        }
+    }
+
+    /**
+     * Returns how much of the heap is in use once garbage has been collected.
+     *
+     * @return The number of bytes in use.
+     */
+    private static long getSettledHeapUsage() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+
+        // a single collection does not always free everything, so take the lowest of a few readings
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+
+        return used;
+    }
+
+    /**
+     * State of the player registry and the heap before players are added.
+     */
+    private class Baseline {
+
+        private final int size = players.size();
+        private final int sessionCount = players.getSessionCount();
+        private final int allocatedIdCount = players.getAllocatedIdCount();
+        private final int idCapacity = players.getIdCapacity();
+        private final long heapUsage = getSettledHeapUsage();
+
+        void assertRestored() {
+            assertEquals(size, players.size());
+            assertEquals(sessionCount, players.getSessionCount());
+            assertEquals(allocatedIdCount, players.getAllocatedIdCount());
+            assertEquals(idCapacity, players.getIdCapacity());
+
+            long growth = getSettledHeapUsage() - heapUsage;
+            assertTrue(String.format("Heap grew by %d bytes", growth), growth < MAX_HEAP_GROWTH);
+        }
+    }
+}
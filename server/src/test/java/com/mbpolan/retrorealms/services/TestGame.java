@@ -0,0 +1,242 @@
+package com.mbpolan.retrorealms.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mbpolan.retrorealms.repositories.UserAccountRepository;
+import com.mbpolan.retrorealms.repositories.entities.UserAccount;
+import com.mbpolan.retrorealms.services.beans.PlayerRegistry;
+import com.mbpolan.retrorealms.services.clock.SimulatedClock;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Runs the game services against a simulated clock and an in-memory database, without any network connections.
+ *
+ * Timed tasks, including game state updates, run on whichever thread advances the clock. Messages to players are
+ * counted, but since nobody would receive them, they are never converted or delivered.
+ *
+ * @author mbpolan
+ */
+class TestGame implements AutoCloseable {
+
+    private final Path snapshotDirectory;
+    private final SimulatedClock clock;
+    private final SettingsService settings;
+    private final AnnotationConfigApplicationContext context;
+
+    TestGame() throws IOException {
+        this(TestSettingsService::new);
+    }
+
+    /**
+     * Runs the game with customized settings.
+     *
+     * @param settingsFactory Creates the settings from the directory that snapshots are written to.
+     * @throws IOException If the snapshot directory cannot be created.
+     */
+    TestGame(Function<Path, ? extends SettingsService> settingsFactory) throws IOException {
+        this.snapshotDirectory = Files.createTempDirectory("retrorealms-test");
+        this.clock = new SimulatedClock(0);
+        this.settings = settingsFactory.apply(snapshotDirectory);
+        this.settings.init();
+
+        this.context = new AnnotationConfigApplicationContext();
+        this.context.getBeanFactory().registerSingleton("clock", clock);
+        this.context.getBeanFactory().registerSingleton("settingsService", settings);
+        this.context.register(TestConfig.class, GameService.class, MapService.class, PersistenceService.class,
+                AuthService.class, SnapshotService.class, OverloadService.class, ThreadService.class,
+                InputRecorder.class);
+        this.context.refresh();
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+
+        try (Stream<Path> files = Files.walk(snapshotDirectory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    GameService getGameService() {
+        return context.getBean(GameService.class);
+    }
+
+    MapService getMapService() {
+        return context.getBean(MapService.class);
+    }
+
+    PlayerRegistry getPlayers() {
+        return getGameService().getPlayerRegistry();
+    }
+
+    SimulatedClock getClock() {
+        return clock;
+    }
+
+    SettingsService getSettings() {
+        return settings;
+    }
+
+    /**
+     * Returns how many messages have been sent to players so far.
+     *
+     * @return The number of messages.
+     */
+    long getSentMessageCount() {
+        return context.getBean(CountingMessagingTemplate.class).count.get();
+    }
+
+    /**
+     * Creates a user account, placed at the spawn point, that can be added to the game.
+     *
+     * @param id The ID number of the account.
+     * @param username The username of the account.
+     * @return A new {@link UserAccount}.
+     */
+    UserAccount createAccount(long id, String username) {
+        try {
+            // accounts are normally only ever loaded from the database
+            Constructor<UserAccount> constructor = UserAccount.class.getDeclaredConstructor();
+            constructor.setAccessible(true);
+
+            UserAccount account = constructor.newInstance();
+            setField(account, "id", id);
+            setField(account, "username", username);
+            setField(account, "password", "password");
+            setField(account, "sprite", "char1");
+            setField(account, "speed", 8);
+
+            account.setDirection("down");
+            account.setMapArea(settings.getPlayerSpawnArea());
+            account.setX(settings.getPlayerSpawnX());
+            account.setY(settings.getPlayerSpawnY());
+
+            return account;
+        }
+
+        catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Cannot create user account", ex);
+        }
+    }
+
+    private static void setField(Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    /**
+     * Beans that the game services need from the rest of the application.
+     */
+    @Configuration
+    static class TestConfig {
+
+        @Bean
+        public CountingMessagingTemplate socket() {
+            return new CountingMessagingTemplate();
+        }
+
+        @Bean
+        public ObjectMapper mapper() {
+            return new ObjectMapper();
+        }
+
+        @Bean(destroyMethod = "shutdown")
+        public EmbeddedDatabase dataSource() {
+            return new EmbeddedDatabaseBuilder()
+                    .generateUniqueName(true)
+                    .setType(EmbeddedDatabaseType.H2)
+                    .addScript("schema.sql")
+                    .build();
+        }
+
+        @Bean
+        public JdbcTemplate jdbc(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        public UserAccountRepository users() {
+            // accounts are handed to the game directly, so the repository never has any to return
+            return (UserAccountRepository) Proxy.newProxyInstance(UserAccountRepository.class.getClassLoader(),
+                    new Class<?>[]{ UserAccountRepository.class }, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "equals":
+                                return proxy == args[0];
+
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+
+                            case "toString":
+                                return "UserAccountRepository";
+
+                            default:
+                                return null;
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Messaging template that counts messages sent to players, and then drops them.
+     */
+    static class CountingMessagingTemplate extends SimpMessagingTemplate {
+
+        private final AtomicLong count;
+
+        CountingMessagingTemplate() {
+            super(new ExecutorSubscribableChannel());
+            this.count = new AtomicLong();
+        }
+
+        @Override
+        public void convertAndSendToUser(String user, String destination, Object payload,
+                                         Map<String, Object> headers) {
+            count.incrementAndGet();
+        }
+    }
+
+    /**
+     * Settings from the server's configuration files, with snapshots kept out of the way of the real server.
+     */
+    static class TestSettingsService extends SettingsService {
+
+        private final Path snapshotDirectory;
+
+        TestSettingsService(Path snapshotDirectory) {
+            this.snapshotDirectory = snapshotDirectory;
+        }
+
+        @Override
+        public String getSnapshotDirectory() {
+            return snapshotDirectory.toString();
+        }
+
+        @Override
+        public int getDispatchWorkers() {
+            // send game state updates on the thread that advances the clock
+            return 0;
+        }
+    }
+}
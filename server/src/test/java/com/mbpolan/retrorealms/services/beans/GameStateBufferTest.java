@@ -0,0 +1,80 @@
+package com.mbpolan.retrorealms.services.beans;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mbpolan.retrorealms.beans.responses.GameStateResponse;
+import com.mbpolan.retrorealms.beans.responses.data.PlayerInfo;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that game state updates written out by hand look the same as those encoded by Jackson.
+ *
+ * @author mbpolan
+ */
+public class GameStateBufferTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testEncodesLikeGameStateResponse() throws Exception {
+        GameStateBuffer buffer = new GameStateBuffer();
+
+        // more players than the buffer starts out with room for
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            players.add(createPlayer(i, 32 * i, 480 - 16 * i));
+        }
+
+        assertEncodesLike(buffer, players.subList(0, 3), players);
+        assertEncodesLike(buffer, players, players);
+        assertEncodesLike(buffer, players.subList(5, 6), players.subList(5, 6));
+    }
+
+    @Test
+    public void testClearDropsRecipients() {
+        GameStateBuffer buffer = new GameStateBuffer();
+        List<Player> players = Arrays.asList(createPlayer(0, 0, 0), createPlayer(1, 32, 32));
+
+        buffer.capture(createState(players), players);
+        buffer.clear();
+
+        assertEquals(0, buffer.size());
+        assertTrue(buffer.getRecipients().isEmpty());
+        assertEquals("{\"header\":\"gameState\",\"players\":[]}", buffer.encode());
+    }
+
+    private void assertEncodesLike(GameStateBuffer buffer, List<Player> changed, List<Player> players)
+            throws Exception {
+
+        buffer.capture(createState(changed), players);
+
+        List<PlayerInfo> infos = changed.stream()
+                .map(p -> new PlayerInfo(p.getId(), null, null, p.plane().getX1(), p.plane().getY1(), null))
+                .collect(Collectors.toList());
+
+        assertEquals(mapper.writeValueAsString(new GameStateResponse(infos)), buffer.encode());
+        assertEquals(changed.size(), buffer.size());
+        assertEquals(players, buffer.getRecipients());
+    }
+
+    private static GameState createState(List<Player> changed) {
+        GameState state = new GameState();
+        changed.forEach(state::addChangedPlayer);
+
+        return state;
+    }
+
+    private static Player createPlayer(int id, int x, int y) {
+        Player player = new Player(id, (long) id, "session-" + id, "player" + id, "char1", Direction.DOWN, null);
+        player.setAbsolutePosition(0, x, y);
+
+        return player;
+    }
+}
@@ -0,0 +1,109 @@
+package com.mbpolan.retrorealms.services.beans;
+
+import com.mbpolan.retrorealms.services.clock.SimulatedClock;
+import com.mbpolan.retrorealms.services.map.Layer;
+import com.mbpolan.retrorealms.services.map.Tile;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that players collide with tile bounding boxes where the tiles are placed in a map area.
+ *
+ * @author mbpolan
+ */
+public class MapAreaTest {
+
+    private static final int TILE_SIZE = 32;
+
+    // the solid tile sits in the third cell of a row or column of four, with a box that doesn't start at its origin
+    private static final int SOLID_CELL = 2;
+    private static final int OFFSET = 8;
+    private static final int BOX_SIZE = 8;
+
+    // the edges of the box in area coordinates
+    private static final int BOX_START = SOLID_CELL * TILE_SIZE + OFFSET;
+    private static final int BOX_END = BOX_START + BOX_SIZE;
+
+    @Test
+    public void testBoxBlocksHorizontallyAtCellOriginPlusOffset() {
+        MapArea area = createArea(4, 1);
+
+        // right up against the box, on either side
+        assertFalse(canMove(area, BOX_START - TILE_SIZE, 0, Direction.RIGHT));
+        assertFalse(canMove(area, BOX_END, 0, Direction.LEFT));
+
+        // a step away from the box, which would only collide if its offset were applied twice
+        assertTrue(canMove(area, BOX_START - TILE_SIZE - OFFSET, 0, Direction.RIGHT));
+        assertTrue(canMove(area, BOX_END + OFFSET, 0, Direction.LEFT));
+    }
+
+    @Test
+    public void testBoxBlocksVerticallyAtCellOriginPlusOffset() {
+        MapArea area = createArea(1, 4);
+
+        assertFalse(canMove(area, 0, BOX_START - TILE_SIZE, Direction.DOWN));
+        assertFalse(canMove(area, 0, BOX_END, Direction.UP));
+
+        assertTrue(canMove(area, 0, BOX_START - TILE_SIZE - OFFSET, Direction.DOWN));
+        assertTrue(canMove(area, 0, BOX_END + OFFSET, Direction.UP));
+    }
+
+    @Test
+    public void testPlayerStopsAgainstBox() {
+        MapArea area = createArea(4, 1);
+
+        // half a step away from the box, so the player can only move part of the way
+        Player player = createPlayer(BOX_START - TILE_SIZE - OFFSET / 2, 0, Direction.RIGHT);
+        area.addPlayer(player);
+        area.movePlayer(player);
+
+        assertEquals(BOX_START, player.plane().getX2());
+        assertEquals(MoveAction.collision().getAction(), area.movePlayer(player).getAction());
+        assertEquals(BOX_START, player.plane().getX2());
+    }
+
+    private static boolean canMove(MapArea area, int x, int y, Direction direction) {
+        Player player = createPlayer(x, y, direction);
+        area.addPlayer(player);
+
+        boolean canMove = area.canPlayerMove(player, direction);
+        area.removePlayer(player);
+
+        return canMove;
+    }
+
+    private static MapArea createArea(int width, int height) {
+        Rectangle frame = new Rectangle(0, 0, TILE_SIZE, TILE_SIZE);
+        Tile solid = new Tile(1, frame, Collections.singletonList(
+                new Rectangle(OFFSET, OFFSET, OFFSET + BOX_SIZE, OFFSET + BOX_SIZE)));
+
+        // a single row or column of empty cells, apart from the solid one
+        List<List<Tile>> tiles = new ArrayList<>();
+        for (int y = 0; y < height; y++) {
+            List<Tile> row = new ArrayList<>();
+
+            for (int x = 0; x < width; x++) {
+                row.add(x == SOLID_CELL || y == SOLID_CELL ? solid : null);
+            }
+
+            tiles.add(row);
+        }
+
+        return new MapArea(0, width, height, TILE_SIZE, 16, Collections.singletonList(new Layer(tiles)),
+                Collections.emptyList(), new SimulatedClock(0));
+    }
+
+    private static Player createPlayer(int x, int y, Direction direction) {
+        Player player = new Player(0, 0L, "session-0", "player0", "char1", direction, null);
+        player.setAbsolutePosition(0, x, y);
+
+        return player;
+    }
+}
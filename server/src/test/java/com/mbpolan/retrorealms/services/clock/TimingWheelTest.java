@@ -0,0 +1,127 @@
+package com.mbpolan.retrorealms.services.clock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that a timing wheel runs tasks, and timeouts that are scheduled over and over, no matter how earlier ones
+ * failed.
+ *
+ * @author mbpolan
+ */
+public class TimingWheelTest {
+
+    private TimingWheel wheel;
+
+    @Before
+    public void setUp() {
+        this.wheel = new TimingWheel("test-wheel", 1, 16);
+    }
+
+    @After
+    public void tearDown() {
+        wheel.shutdown();
+    }
+
+    @Test
+    public void testTasksRunAfterExceptions() throws Exception {
+        assertRunsAfter(() -> {
+            throw new IllegalStateException("Expected failure");
+        });
+    }
+
+    @Test
+    public void testTasksRunAfterErrors() throws Exception {
+        assertRunsAfter(() -> {
+            throw new AssertionError("Expected failure");
+        });
+    }
+
+    @Test
+    public void testCancelledTasksDoNotRun() throws Exception {
+        AtomicBoolean ran = new AtomicBoolean();
+        CountDownLatch later = new CountDownLatch(1);
+
+        assertTrue(wheel.schedule(() -> ran.set(true), 20).cancel());
+        wheel.schedule(later::countDown, 40);
+
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        assertFalse(ran.get());
+    }
+
+    @Test
+    public void testTimeoutRunsEachTimeItSchedulesItself() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        TimingWheel.Timeout[] timeout = new TimingWheel.Timeout[1];
+
+        // like a walking player, the task schedules its next run while it is still running
+        timeout[0] = wheel.createTimeout(() -> {
+            if (runs.incrementAndGet() < 50) {
+                timeout[0].schedule(1);
+            }
+
+            else {
+                done.countDown();
+            }
+        });
+
+        timeout[0].schedule(1);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(50, runs.get());
+    }
+
+    @Test
+    public void testSchedulingAgainMovesPendingRun() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        TimingWheel.Timeout timeout = wheel.createTimeout(runs::incrementAndGet);
+
+        // the run far in the future is replaced by one that is due right away
+        timeout.schedule(TimeUnit.MINUTES.toMillis(1));
+        timeout.schedule(10);
+
+        CountDownLatch later = new CountDownLatch(1);
+        wheel.schedule(later::countDown, 100);
+
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    public void testCancelledTimeoutCanBeScheduledAgain() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        TimingWheel.Timeout timeout = wheel.createTimeout(runs::incrementAndGet);
+
+        timeout.schedule(20);
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        timeout.schedule(20);
+
+        CountDownLatch later = new CountDownLatch(1);
+        wheel.schedule(later::countDown, 100);
+
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+    }
+
+    private void assertRunsAfter(Runnable failing) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+
+        wheel.schedule(failing, 0);
+        wheel.schedule(done::countDown, 20);
+
+        assertTrue("Task did not run after an earlier one failed", done.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,71 @@
+package com.mbpolan.retrorealms.services.map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that maps are only loaded with tilesets whose tiles fit the map.
+ *
+ * @author mbpolan
+ */
+public class TmxMapLoaderTest {
+
+    private static final Path DATA_DIR = Paths.get(".", "data");
+    private static final String TILESET_SIZE = "name=\"base\" tilewidth=\"32\" tileheight=\"32\"";
+
+    private String map;
+
+    @Before
+    public void setUp() throws Exception {
+        this.map = new String(Files.readAllBytes(DATA_DIR.resolve("base.tmx")), StandardCharsets.UTF_8);
+        assertTrue(map.contains(TILESET_SIZE));
+    }
+
+    @Test
+    public void testLoadsMatchingTileset() throws Exception {
+        GameMap loaded = load(map);
+
+        assertEquals(32, loaded.getTileSize());
+    }
+
+    @Test
+    public void testRejectsTilesetWithNonSquareTiles() throws Exception {
+        assertRejected(map.replace(TILESET_SIZE, "name=\"base\" tilewidth=\"32\" tileheight=\"16\""),
+                "must have square tiles");
+    }
+
+    @Test
+    public void testRejectsTilesetWithOtherTileSize() throws Exception {
+        assertRejected(map.replace(TILESET_SIZE, "name=\"base\" tilewidth=\"16\" tileheight=\"16\""),
+                "must have 32x32 tiles");
+    }
+
+    private static void assertRejected(String contents, String reason) {
+        try {
+            load(contents);
+            fail("Map with mismatched tileset was loaded");
+        }
+
+        catch (IOException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains(reason));
+        }
+    }
+
+    private static GameMap load(String contents) throws IOException {
+        try (InputStream in = new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8))) {
+            return new TmxMapLoader(DATA_DIR).load(in);
+        }
+    }
+}